@@ -0,0 +1,44 @@
+package cassdemo.backend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AvailableClassesBenchmark {
+
+    @Param({"false", "true"})
+    public boolean strict;
+
+    private RentalService service;
+    private LocalDate date;
+
+    @Setup
+    public void setUp() throws BackendException {
+        service = new RentalService(BenchmarkFleet.withCarsPerClass(8), BenchmarkFleet.config());
+        service.initializeDatabase();
+        date = LocalDate.now().plusDays(3);
+    }
+
+    @Benchmark
+    public List<String> availableCarClasses() throws BackendException {
+        return service.getAvailableCarClasses(date, strict);
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.close();
+    }
+}
@@ -0,0 +1,27 @@
+package cassdemo.backend;
+
+import java.util.Properties;
+
+final class BenchmarkFleet {
+
+    private BenchmarkFleet() {
+    }
+
+    static MemoryBackend withCarsPerClass(int carsPerClass) {
+        MemoryBackend backend = new MemoryBackend();
+        int carId = 0;
+        for (String carClass : Car.getCarClasses()) {
+            for (int i = 0; i < carsPerClass; i++, carId++) {
+                backend.addCar(new Car(carId, "Car " + carId, carClass, "PO " + carId));
+            }
+        }
+        return backend;
+    }
+
+    static Properties config() {
+        Properties config = new Properties();
+        config.setProperty("fleet_refresh_seconds", "0");
+        config.setProperty("horizon_refresh_seconds", "0");
+        return config;
+    }
+}
@@ -0,0 +1,53 @@
+package cassdemo.backend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RentAllBenchmark {
+
+    private RentalService service;
+    private LocalDate date;
+    private UUID renterId;
+
+    @Setup
+    public void setUp() throws BackendException {
+        MemoryBackend backend = BenchmarkFleet.withCarsPerClass(8);
+        // every class A car is already out, so each rental has to fall back to an upgrade
+        for (int carId : backend.getCarIdsByClass("A")) {
+            backend.tryAssignCar(carId, UUID.randomUUID());
+        }
+        service = new RentalService(backend, BenchmarkFleet.config());
+        service.initializeDatabase();
+        date = LocalDate.now();
+        renterId = UUID.randomUUID();
+        service.reserveRental(date, renterId, date.plusDays(1), "A");
+    }
+
+    @Benchmark
+    public List<Car> rentWithUpgrade() throws BackendException {
+        List<Car> cars = service.processRentalsForClient(date, renterId);
+        for (Car car : cars) {
+            service.returnCar(car.getCarId(), date, date.plusDays(1), date);
+        }
+        return cars;
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.close();
+    }
+}
@@ -0,0 +1,56 @@
+package cassdemo.backend;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RentalLogMappingBenchmark {
+
+    private static final String[] COLUMNS = {"dateFrom", "renterId", "rentalId", "dateTo", "carClass"};
+
+    private Row row;
+
+    // getters answer by column name or by position, in the order the rentalLog selects list them
+    @Setup
+    public void setUp() {
+        Object[] values = {LocalDate.now(), UUID.randomUUID(), UUID.randomUUID(), LocalDate.now().plusDays(3), "C"};
+        Map<String, Object> byName = new HashMap<>();
+        for (int i = 0; i < COLUMNS.length; i++) {
+            byName.put(COLUMNS[i], values[i]);
+        }
+        row = (Row) Proxy.newProxyInstance(Row.class.getClassLoader(), new Class<?>[]{Row.class},
+                (proxy, method, args) -> args[0] instanceof Integer index ? values[index] : byName.get((String) args[0]));
+    }
+
+    // the mapping used before rows were decoded by position
+    @Benchmark
+    public RentalLog builderMapping() {
+        return new RentalLog.Builder()
+                .dateFrom(row.getLocalDate("dateFrom"))
+                .renterId(row.get("renterId", UUID.class))
+                .rentalId(row.get("rentalId", UUID.class))
+                .dateTo(row.getLocalDate("dateTo"))
+                .carClass(row.getString("carClass"))
+                .build();
+    }
+
+    @Benchmark
+    public RentalLog directMapping() {
+        return BackendSession.toRentalLog(row);
+    }
+}
@@ -0,0 +1,51 @@
+package cassdemo.backend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReserveRentalBenchmark {
+
+    @Param({"1", "7", "30"})
+    public int days;
+
+    private RentalService service;
+    private LocalDate dateFrom;
+    private LocalDate dateTo;
+    private UUID renterId;
+
+    @Setup
+    public void setUp() throws BackendException {
+        service = new RentalService(BenchmarkFleet.withCarsPerClass(16), BenchmarkFleet.config());
+        service.initializeDatabase();
+        dateFrom = LocalDate.now();
+        dateTo = dateFrom.plusDays(days);
+        renterId = UUID.randomUUID();
+    }
+
+    // every reservation is cancelled again so the class never runs out of capacity
+    @Benchmark
+    public UUID reserveAndCancel() throws BackendException {
+        UUID rentalId = service.reserveRental(dateFrom, renterId, dateTo, "C");
+        service.deleteReservation(dateFrom, renterId, rentalId, dateTo, "C");
+        return rentalId;
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.close();
+    }
+}
@@ -1,23 +1,93 @@
 package cassdemo;
 
+import cassdemo.backend.BackendException;
+import cassdemo.backend.MemoryBackend;
 import cassdemo.backend.RentalConsole;
+import cassdemo.backend.RentalServer;
 import cassdemo.backend.RentalService;
+import cassdemo.backend.ScriptRunner;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     private static final String PROPERTIES_FILENAME = "config.properties";
+    private static final long SHUTDOWN_GRACE_SECONDS = 30;
+
+    // counted down once main has closed the service, whichever way it got there
+    private static final CountDownLatch SERVICE_CLOSED = new CountDownLatch(1);
 
     public static void main(String[] args) throws Exception {
         Properties props = loadProperties();
         String contactPoint = props.getProperty("contact_point", "127.0.0.1");
         String keyspace = props.getProperty("keyspace", "distrental");
 
-        try (RentalService service = new RentalService(contactPoint, keyspace)) {
-            new RentalConsole(service).start();
+        // 'server' serves HTTP until the process is stopped, 'script <in|-> [out]' replays a command file,
+        // anything else opens the console
+        String mode = args.length > 0 ? args[0] : props.getProperty("mode", "console");
+        int status = 0;
+
+        try (RentalService service = createService(props, contactPoint, keyspace)) {
+            if ("server".equalsIgnoreCase(mode)) {
+                RentalServer server = new RentalServer(service, props);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    server.close();
+                    // the JVM halts as soon as the hooks return, so give main the time to close the session
+                    awaitServiceClosed();
+                }));
+                server.start();
+                server.awaitShutdown();
+            } else if ("script".equalsIgnoreCase(mode)) {
+                // a failed line fails the run, so a replay in a pipeline or CI does not pass silently
+                status = runScript(service, props, args).getFailed() > 0 ? 1 : 0;
+            } else {
+                new RentalConsole(service).start();
+            }
+        } finally {
+            SERVICE_CLOSED.countDown();
+        }
+        System.exit(status);
+    }
+
+    private static void awaitServiceClosed() {
+        try {
+            SERVICE_CLOSED.await(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 'memory' runs embedded without a cluster; its state is lost on exit
+    private static RentalService createService(Properties props, String contactPoint, String keyspace) throws BackendException {
+        if ("memory".equalsIgnoreCase(props.getProperty("backend", "cassandra"))) {
+            MemoryBackend backend = MemoryBackend.withFleet(props.getProperty("memory_fleet", "fleet.csv"));
+            return new RentalService(backend, props);
+        }
+        return new RentalService(contactPoint, keyspace, props);
+    }
+
+    private static ScriptRunner.Report runScript(RentalService service, Properties props, String[] args) throws IOException {
+        int parallelism = Integer.parseInt(props.getProperty("script_parallelism", "16"));
+        String input = args.length > 1 ? args[1] : "-";
+        try (BufferedReader in = "-".equals(input)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8);
+             PrintWriter out = args.length > 2
+                     ? new PrintWriter(Files.newBufferedWriter(Path.of(args[2]), StandardCharsets.UTF_8))
+                     : new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            ScriptRunner.Report report = new ScriptRunner(service, parallelism).run(in, out);
+            System.err.println(report);
+            return report;
         }
-        System.exit(0);
     }
 
     private static Properties loadProperties() {
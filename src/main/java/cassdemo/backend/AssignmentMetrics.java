@@ -0,0 +1,47 @@
+package cassdemo.backend;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class AssignmentMetrics {
+    private final LongAdder lwtAttempts = new LongAdder();
+    private final LongAdder lwtRejections = new LongAdder();
+    private final LongAdder rentals = new LongAdder();
+    private final LongAdder skippedTaken = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+
+    void recordAttempt(boolean applied) {
+        lwtAttempts.increment();
+        if (applied) {
+            rentals.increment();
+        } else {
+            lwtRejections.increment();
+        }
+    }
+
+    void recordSkip() {
+        skippedTaken.increment();
+    }
+
+    void recordResync() {
+        resyncs.increment();
+    }
+
+    public long getLwtAttempts() {
+        return lwtAttempts.sum();
+    }
+
+    public long getRentals() {
+        return rentals.sum();
+    }
+
+    public double getAttemptsPerRental() {
+        long rented = rentals.sum();
+        return rented == 0 ? 0.0 : (double) lwtAttempts.sum() / rented;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rentals=%d lwtAttempts=%d lwtRejected=%d attemptsPerRental=%.2f skippedTaken=%d resyncs=%d",
+                rentals.sum(), lwtAttempts.sum(), lwtRejections.sum(), getAttemptsPerRental(), skippedTaken.sum(), resyncs.sum());
+    }
+}
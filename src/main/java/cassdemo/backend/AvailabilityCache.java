@@ -0,0 +1,95 @@
+package cassdemo.backend;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Short-lived copy of the availableCars counts for browsing, one entry per date
+ * holding the count of every class. A counter update made through RentalService
+ * drops the entry of its date rather than patching it, since a load racing with
+ * the update may or may not include it. Each date stripe carries a generation
+ * that updates bump; a load only caches what it read when no update of its
+ * stripe landed in between. Updates made by other clients show up once the
+ * entry expires. Reservations never read from here, capacity slots decide.
+ */
+public class AvailabilityCache {
+
+    private static final int GENERATION_STRIPES = 64;
+
+    private final long ttlNanos;
+    private final Map<LocalDate, Entry> entries;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public AvailabilityCache(long ttlMillis, int maxDates) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        // access-ordered, so the least recently browsed date is evicted first
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, Entry> eldest) {
+                return size() > maxDates;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return ttlNanos > 0;
+    }
+
+    // classes with a car left as a CarClass mask, or -1 when missing or expired; does not allocate
+    public int availableMask(LocalDate date) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(date);
+        }
+        if (entry == null || System.nanoTime() - entry.loadedAt > ttlNanos) {
+            return -1;
+        }
+        int mask = 0;
+        for (int i = 0; i < entry.counts.length; i++) {
+            if (entry.counts[i] > 0) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    // read before loading the date from the store, and passed to put with what was loaded
+    public long generation(LocalDate date) {
+        return generations.get(stripe(date));
+    }
+
+    public void put(LocalDate date, long[] counts, long generation) {
+        if (!isEnabled()) return;
+        Entry entry = new Entry(counts.clone(), System.nanoTime());
+        synchronized (entries) {
+            if (generations.get(stripe(date)) == generation) {
+                entries.put(date, entry);
+            }
+        }
+    }
+
+    // after a counter update of the date has been applied to the store
+    public void invalidate(LocalDate date) {
+        generations.incrementAndGet(stripe(date));
+        synchronized (entries) {
+            entries.remove(date);
+        }
+    }
+
+    private static int stripe(LocalDate date) {
+        return (int) Math.floorMod(date.toEpochDay(), GENERATION_STRIPES);
+    }
+
+    private static class Entry {
+        private final long[] counts;
+        private final long loadedAt;
+
+        Entry(long[] counts, long loadedAt) {
+            this.counts = counts;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package cassdemo.backend;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/*
+ * Class x day matrix of available cars, read with one range query per class
+ * (availableCarsByClass keeps a whole class in one partition, ordered by date).
+ * Counts are stored class-major in a single long[]; days that were never
+ * initialized hold StorageBackend.NO_DATA and count as not available.
+ */
+public class AvailabilityCalendar {
+
+    private final LocalDate dateFrom;
+    private final int days;
+    private final List<String> carClasses;
+    private final long[] counts;
+
+    private AvailabilityCalendar(LocalDate dateFrom, int days, List<String> carClasses, long[] counts) {
+        this.dateFrom = dateFrom;
+        this.days = days;
+        this.carClasses = carClasses;
+        this.counts = counts;
+    }
+
+    public static AvailabilityCalendar load(StorageBackend session, LocalDate dateFrom, LocalDate dateTo) throws BackendException {
+        List<String> carClasses = new ArrayList<>(Car.getCarClasses());
+        int days = (int) ChronoUnit.DAYS.between(dateFrom, dateTo) + 1;
+        long[] counts = new long[carClasses.size() * days];
+
+        List<CompletionStage<Void>> reads = new ArrayList<>(carClasses.size());
+        for (int i = 0; i < carClasses.size(); i++) {
+            int offset = i * days;
+            reads.add(session.getAvailableCarCountsAsync(carClasses.get(i), dateFrom, dateTo)
+                    .thenAccept(row -> System.arraycopy(row, 0, counts, offset, days)));
+        }
+        Futures.join(Futures.allOf(reads));
+        return new AvailabilityCalendar(dateFrom, days, carClasses, counts);
+    }
+
+    public LocalDate getDateFrom() {
+        return dateFrom;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public List<String> getCarClasses() {
+        return carClasses;
+    }
+
+    public long count(int classIndex, int day) {
+        return counts[classIndex * days + day];
+    }
+
+    public long count(String carClass, LocalDate date) {
+        int classIndex = CarClass.indexOf(carClass);
+        int day = (int) ChronoUnit.DAYS.between(dateFrom, date);
+        if (classIndex < 0 || day < 0 || day >= days) {
+            return StorageBackend.NO_DATA;
+        }
+        return count(classIndex, day);
+    }
+
+    // first day starting a run of `length` consecutive days with a free car, or null
+    public LocalDate earliestFreeRun(String carClass, int length) throws BackendException {
+        int classIndex = CarClass.indexOf(carClass);
+        if (classIndex < 0) {
+            throw new BackendException("Unknown car class: " + carClass);
+        }
+        int row = classIndex * days;
+        int run = 0;
+        for (int day = 0; day < days; day++) {
+            run = counts[row + day] > 0 ? run + 1 : 0;
+            if (run == length) {
+                return dateFrom.plusDays(day - length + 1);
+            }
+        }
+        return null;
+    }
+
+    // one line per day, one column per class
+    public List<String> lines() {
+        List<String> lines = new ArrayList<>(days + 1);
+        StringBuilder header = new StringBuilder(String.format("%-10s", "date"));
+        for (String carClass : carClasses) {
+            header.append(String.format(" %4s", carClass));
+        }
+        lines.add(header.toString());
+        for (int day = 0; day < days; day++) {
+            StringBuilder line = new StringBuilder(dateFrom.plusDays(day).toString());
+            for (int classIndex = 0; classIndex < carClasses.size(); classIndex++) {
+                long count = count(classIndex, day);
+                line.append(String.format(" %4s", count == StorageBackend.NO_DATA ? "-" : Long.toString(count)));
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,71 @@
+package cassdemo.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Keeps availability counters seeded for the next horizon_days days, so the
+ * edge of the reservation window is always ready before anyone books it.
+ * Off unless horizon_refresh_seconds is set; enable it on one process (or a
+ * few) rather than on every client. Each run reads the seeded markers of the
+ * whole horizon and writes only the days not seeded yet, which after the
+ * first run are the ones that rolled into the horizon since the previous one.
+ */
+public class AvailabilityHorizon implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityHorizon.class);
+
+    private final AvailabilitySeeder seeder;
+    private final int horizonDays;
+    private final ScheduledExecutorService scheduler;
+    private volatile LocalDate seededThrough;
+
+    public AvailabilityHorizon(AvailabilitySeeder seeder, int horizonDays, long refreshSeconds) {
+        this.seeder = seeder;
+        this.horizonDays = horizonDays;
+        if (refreshSeconds > 0 && horizonDays > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "availability-horizon");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::extendQuietly, 0, refreshSeconds, TimeUnit.SECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public int extend() throws BackendException {
+        LocalDate today = LocalDate.now();
+        int seeded = seeder.seed(today, horizonDays);
+        seededThrough = today.plusDays(horizonDays - 1);
+        if (seeded > 0) {
+            logger.info("Availability horizon extended through {}: {} class-days seeded", seededThrough, seeded);
+        }
+        return seeded;
+    }
+
+    private void extendQuietly() {
+        try {
+            extend();
+        } catch (BackendException e) {
+            logger.warn("Extending the availability horizon failed, retrying on the next run", e);
+        }
+    }
+
+    // last day known to be seeded, null until the first run has finished
+    public LocalDate getSeededThrough() {
+        return seededThrough;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package cassdemo.backend;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Brings availability counters for a range of days up to fleet capacity.
+ * Each (class, day) gets its capacity once: the seeder first claims the day
+ * with an IF NOT EXISTS insert into seededDays and only adds capacity where the
+ * insert applied, so concurrent or repeated runs cannot double a day, and a day
+ * booked before it was seeded ends up at capacity minus the booking. Markers
+ * are read first, one range query per class, so a re-run over seeded days only
+ * reads. If the counter write is lost after its marker went in, the day
+ * stays short until 'repair' reconciles it against rentalLog.
+ */
+public class AvailabilitySeeder {
+
+    // keeps each by-class counter batch well below the batch size warning
+    private static final int MAX_BATCH_DAYS = 32;
+
+    private final StorageBackend session;
+    private final FleetIndex fleet;
+    private final AvailabilityCache cache;
+    private final int parallelism;
+
+    public AvailabilitySeeder(StorageBackend session, FleetIndex fleet, AvailabilityCache cache, int parallelism) {
+        this.session = session;
+        this.fleet = fleet;
+        this.cache = cache;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    // returns the number of (class, day) counters that were seeded by this call
+    public int seed(LocalDate dateFrom, int days) throws BackendException {
+        if (days < 1) {
+            return 0;
+        }
+        LocalDate dateTo = dateFrom.plusDays(days - 1);
+        List<String> carClasses = Car.getCarClasses();
+
+        List<CompletableFuture<boolean[]>> reads = new ArrayList<>(carClasses.size());
+        for (String carClass : carClasses) {
+            reads.add(session.getSeededDaysAsync(carClass, dateFrom, dateTo).toCompletableFuture());
+        }
+
+        Semaphore permits = new Semaphore(parallelism);
+        List<CompletableFuture<boolean[]>> marks = new ArrayList<>(carClasses.size());
+        for (int c = 0; c < carClasses.size(); c++) {
+            String carClass = carClasses.get(c);
+            boolean[] seeded = Futures.join(reads.get(c));
+            marks.add(fleet.capacity(carClass) == 0
+                    ? CompletableFuture.completedFuture(new boolean[days])
+                    : mark(permits, carClass, dateFrom, seeded));
+        }
+
+        List<CompletionStage<Void>> writes = new ArrayList<>();
+        int seeded = 0;
+        for (int c = 0; c < carClasses.size(); c++) {
+            String carClass = carClasses.get(c);
+            long capacity = fleet.capacity(carClass);
+            boolean[] claimed = Futures.join(marks.get(c));
+
+            // contiguous runs of days claimed by this call become one range update each
+            int day = 0;
+            while (day < days) {
+                if (!claimed[day]) {
+                    day++;
+                    continue;
+                }
+                int runStart = day;
+                while (day < days && day - runStart < MAX_BATCH_DAYS && claimed[day]) {
+                    day++;
+                }
+                seeded += day - runStart;
+                writes.add(write(permits, carClass, dateFrom.plusDays(runStart), dateFrom.plusDays(day - 1), capacity));
+            }
+        }
+        Futures.join(Futures.allOf(writes));
+        return seeded;
+    }
+
+    /*
+     * One-time step for keyspaces created before availableCarsByClass and
+     * seededDays: every day that already has an availableCars counter is marked
+     * seeded as it is and its count is copied into availableCarsByClass, so the
+     * next seed leaves it alone instead of adding capacity on top of its
+     * bookings. Days without a counter are left to the seeder. Run it once,
+     * before traffic and before the first 'initialize' on the new schema.
+     */
+    public int migrate(LocalDate dateFrom, int days) throws BackendException {
+        if (days < 1) {
+            return 0;
+        }
+        LocalDate dateTo = dateFrom.plusDays(days - 1);
+        List<String> carClasses = Car.getCarClasses();
+
+        List<CompletableFuture<long[]>> byDate = new ArrayList<>(days);
+        for (int day = 0; day < days; day++) {
+            byDate.add(session.getAvailableCarCountsForDateAsync(dateFrom.plusDays(day)).toCompletableFuture());
+        }
+        List<CompletableFuture<long[]>> byClass = new ArrayList<>(carClasses.size());
+        List<CompletableFuture<boolean[]>> seeded = new ArrayList<>(carClasses.size());
+        for (String carClass : carClasses) {
+            byClass.add(session.getAvailableCarCountsAsync(carClass, dateFrom, dateTo).toCompletableFuture());
+            seeded.add(session.getSeededDaysAsync(carClass, dateFrom, dateTo).toCompletableFuture());
+        }
+
+        Semaphore permits = new Semaphore(parallelism);
+        List<CompletionStage<Void>> copies = new ArrayList<>();
+        AtomicInteger migrated = new AtomicInteger();
+        for (int c = 0; c < carClasses.size(); c++) {
+            String carClass = carClasses.get(c);
+            int classIndex = CarClass.indexOf(carClass);
+            long[] classCounts = Futures.join(byClass.get(c));
+            boolean[] classSeeded = Futures.join(seeded.get(c));
+            for (int day = 0; day < days; day++) {
+                long count = Futures.join(byDate.get(day))[classIndex];
+                if (count == StorageBackend.NO_DATA || classSeeded[day]) continue;
+                LocalDate date = dateFrom.plusDays(day);
+                long byClassDelta = count - (classCounts[day] == StorageBackend.NO_DATA ? 0 : classCounts[day]);
+                acquire(permits);
+                copies.add(session.markSeededAsync(carClass, date)
+                        .thenCompose(applied -> {
+                            if (!applied) return CompletableFuture.<Void>completedFuture(null);
+                            migrated.incrementAndGet();
+                            return session.adjustAvailableCountAsync(date, carClass, 0, byClassDelta);
+                        })
+                        .whenComplete((v, e) -> permits.release()));
+            }
+        }
+        Futures.join(Futures.allOf(copies));
+        return migrated.get();
+    }
+
+    // claims every day not seeded yet; the result marks the days this call won
+    private CompletableFuture<boolean[]> mark(Semaphore permits, String carClass, LocalDate dateFrom, boolean[] seeded) throws BackendException {
+        boolean[] claimed = new boolean[seeded.length];
+        List<CompletionStage<Void>> inserts = new ArrayList<>();
+        for (int day = 0; day < seeded.length; day++) {
+            if (seeded[day]) continue;
+            int index = day;
+            acquire(permits);
+            inserts.add(session.markSeededAsync(carClass, dateFrom.plusDays(day)).thenAccept(applied -> claimed[index] = applied)
+                    .whenComplete((v, e) -> permits.release()));
+        }
+        return Futures.allOf(inserts).thenApply(v -> claimed).toCompletableFuture();
+    }
+
+    private static void acquire(Semaphore permits) throws BackendException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackendException("Interrupted while seeding availability.", e);
+        }
+    }
+
+    private CompletionStage<Void> write(Semaphore permits, String carClass, LocalDate dateFrom, LocalDate dateTo, long capacity) throws BackendException {
+        acquire(permits);
+        return session.updateAvailableCountsAsync(carClass, dateFrom, dateTo, capacity).whenComplete((v, e) -> {
+            permits.release();
+            if (e == null) {
+                for (LocalDate date = dateFrom; !date.isAfter(dateTo); date = date.plusDays(1)) {
+                    cache.invalidate(date);
+                }
+            }
+        });
+    }
+}
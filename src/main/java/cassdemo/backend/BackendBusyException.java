@@ -0,0 +1,10 @@
+package cassdemo.backend;
+
+// the request was turned away before reaching storage; the same request can succeed later
+public class BackendBusyException extends BackendException {
+	private static final long serialVersionUID = 1L;
+
+	public BackendBusyException(String message) {
+		super(message);
+	}
+}
@@ -1,11 +1,28 @@
 package cassdemo.backend;
 
+import java.math.BigInteger;
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.jmx.JmxReporter;
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.NoNodeAvailableException;
+import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
 import com.datastax.oss.driver.api.core.cql.*;
+import com.datastax.oss.driver.api.core.servererrors.OverloadedException;
+import com.datastax.oss.driver.api.core.servererrors.UnavailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,61 +37,249 @@ import static cassdemo.backend.BackendSession.Query.*;
  * OpetationTimedOutExceptions (thrown by the client). Remember to retry
  * failed operations until success (it can be done through the RetryPolicy mechanism:
  * https://stackoverflow.com/questions/30329956/cassandra-datastax-driver-retry-policy )
+ *
+ * Retries are driven by the execution profile each Query maps to, see Profile.
  */
 
-public class BackendSession implements AutoCloseable {
+public class BackendSession implements StorageBackend {
 
     private static final Logger logger = LoggerFactory.getLogger(BackendSession.class);
 
     private final CqlSession session;
 
+    private final QueryMetrics metrics = new QueryMetrics();
+
+    private final JmxReporter driverMetricsReporter;
+
+    private final int counterMaxRetries;
+
+    private final long counterRetryBackoffMs;
+
+    private final int streamPageSize;
+
     public enum Query {
-        SELECT_AVAILABLE_CARS("SELECT count FROM availableCars WHERE date = :date AND carClass = :carClass"),
-        MAKE_A_RESERVATION("INSERT INTO rentalLog (dateFrom, renterId, rentalId, dateTo, carClass) VALUES (?, ?, ?, ?, ?)"),
-        DELETE_RESERVATION("DELETE FROM rentalLog WHERE dateFrom = ? AND renterId = ? AND rentalId = ?"),
-        SELECT_TODAYS_CLIENTS_RENTALS("SELECT * FROM rentalLog WHERE dateFrom = ? AND renterId = ?"),
-        CHECK_CARS_RENTAL_ID("SELECT rentalId FROM carRentals WHERE carId = ?"),
-        TRY_RENTING_CAR("UPDATE carRentals SET rentalId = ? WHERE carId = ? IF rentalId = null"),
-        ADD_RENTAL_TO_HISTORY("INSERT INTO carHistory (carId, dateFrom, dateTo, renterId, rentalId) VALUES (?,?,?,?,?)"),
-        SELECT_ALL_CAR_IDS("SELECT carIdList FROM carClasses WHERE carClass = ?"),
-        ADD_TO_AVAILABLE_CARS("UPDATE availableCars SET count = count + :count WHERE date = :date AND carClass = :carClass"),
-        DECREASE_FROM_AVAILABLE_CARS("UPDATE availableCars SET count = count - :count WHERE date = :date AND carClass = :carClass"),
-        UPDATE_DATE_RECEIVED("UPDATE carHistory SET dateReceived = ? WHERE carId = ? AND dateFrom = ? AND dateTo = ?"),
-        SELECT_CAR_DETAILS("SELECT carId, carName, carClass, licensePlate FROM carDetails WHERE carId = ?"),
-        DELETE_CURRENT_CAR_RENTAL("DELETE FROM carRentals WHERE carId = ?");
+        SELECT_AVAILABLE_CARS(Profile.READ, "SELECT count FROM availableCars WHERE date = :date AND carClass = :carClass"),
+        SELECT_AVAILABLE_CARS_FOR_DATE(Profile.READ, "SELECT carClass, count FROM availableCars WHERE date = :date"),
+        SELECT_AVAILABLE_CARS_RANGE(Profile.READ, "SELECT date, count FROM availableCarsByClass WHERE carClass = :carClass AND date >= :dateFrom AND date <= :dateTo"),
+        MAKE_A_RESERVATION(Profile.WRITE, "INSERT INTO rentalLog (dateFrom, renterId, rentalId, dateTo, carClass, slots) VALUES (?, ?, ?, ?, ?, ?)"),
+        SELECT_RESERVATION_SLOTS(Profile.READ, "SELECT slots FROM rentalLog WHERE dateFrom = ? AND renterId = ? AND rentalId = ?"),
+        DELETE_RESERVATION(Profile.WRITE, "DELETE FROM rentalLog WHERE dateFrom = ? AND renterId = ? AND rentalId = ?"),
+        INDEX_RESERVATION(Profile.WRITE, "INSERT INTO reservationsByRenter (renterId, dateFrom, rentalId, dateTo, carClass) VALUES (?, ?, ?, ?, ?)"),
+        UNINDEX_RESERVATION(Profile.WRITE, "DELETE FROM reservationsByRenter WHERE renterId = ? AND dateFrom = ? AND rentalId = ?"),
+        SELECT_RENTER_RESERVATIONS(Profile.READ, "SELECT dateFrom, renterId, rentalId, dateTo, carClass FROM reservationsByRenter WHERE renterId = ? AND dateFrom >= ?"),
+        SELECT_TODAYS_CLIENTS_RENTALS(Profile.READ, "SELECT dateFrom, renterId, rentalId, dateTo, carClass FROM rentalLog WHERE dateFrom = ? AND renterId = ?"),
+        CHECK_CARS_RENTAL_ID(Profile.READ, "SELECT rentalId FROM carRentals WHERE carId = ?"),
+        SELECT_ALL_CAR_RENTALS(Profile.READ, "SELECT carId, rentalId FROM carRentals"),
+        TRY_RENTING_CAR(Profile.LWT, "UPDATE carRentals SET rentalId = ? WHERE carId = ? IF rentalId = null"),
+        ADD_RENTAL_TO_HISTORY(Profile.WRITE, "INSERT INTO carHistory (carId, dateFrom, dateTo, renterId, rentalId) VALUES (?,?,?,?,?)"),
+        SELECT_ALL_CAR_IDS(Profile.READ, "SELECT carIdList FROM carClasses WHERE carClass = ?"),
+        ADD_TO_AVAILABLE_CARS(Profile.COUNTER, "UPDATE availableCars SET count = count + :count WHERE date = :date AND carClass = :carClass"),
+        DECREASE_FROM_AVAILABLE_CARS(Profile.COUNTER, "UPDATE availableCars SET count = count - :count WHERE date = :date AND carClass = :carClass"),
+        ADD_TO_AVAILABLE_CARS_BY_CLASS(Profile.COUNTER, "UPDATE availableCarsByClass SET count = count + :count WHERE carClass = :carClass AND date = :date"),
+        DECREASE_FROM_AVAILABLE_CARS_BY_CLASS(Profile.COUNTER, "UPDATE availableCarsByClass SET count = count - :count WHERE carClass = :carClass AND date = :date"),
+        UPDATE_DATE_RECEIVED(Profile.WRITE, "UPDATE carHistory SET dateReceived = ? WHERE carId = ? AND dateFrom = ? AND dateTo = ?"),
+        SELECT_CAR_DETAILS(Profile.READ, "SELECT carId, carName, carClass, licensePlate FROM carDetails WHERE carId = ?"),
+        SELECT_ALL_CAR_CLASSES(Profile.READ, "SELECT carClass, carIdList FROM carClasses"),
+        SELECT_ALL_CAR_DETAILS(Profile.READ, "SELECT carId, carName, carClass, licensePlate FROM carDetails"),
+        DELETE_CURRENT_CAR_RENTAL(Profile.WRITE, "DELETE FROM carRentals WHERE carId = ?"),
+        SELECT_CLAIMED_SLOTS(Profile.READ, "SELECT slot FROM capacitySlots WHERE carClass = ? AND date = ? AND shard = ?"),
+        CLAIM_SLOT(Profile.LWT, "UPDATE capacitySlots SET rentalId = ? WHERE carClass = ? AND date = ? AND shard = ? AND slot = ? IF rentalId = null"),
+        SELECT_RENTALS_FOR_DATE(Profile.READ, "SELECT dateFrom, renterId, rentalId, dateTo, carClass FROM rentalLog WHERE dateFrom = ?"),
+        SELECT_CAR_HISTORY(Profile.READ, "SELECT carId, dateFrom, dateTo, dateReceived, renterId, rentalId FROM carHistory WHERE carId = ?"),
+        SCAN_CAR_HISTORY(Profile.READ, "SELECT carId, dateFrom, dateTo, dateReceived, renterId, rentalId FROM carHistory WHERE token(carId) > ? AND token(carId) <= ?"),
+        SCAN_RENTALS(Profile.READ, "SELECT dateFrom, renterId, rentalId, dateTo, carClass FROM rentalLog WHERE token(dateFrom) > ? AND token(dateFrom) <= ?"),
+        RELEASE_SLOT(Profile.LWT, "DELETE FROM capacitySlots WHERE carClass = ? AND date = ? AND shard = ? AND slot = ? IF rentalId = ?"),
+        SELECT_SEEDED_DAYS(Profile.READ, "SELECT date FROM seededDays WHERE carClass = ? AND date >= ? AND date <= ?"),
+        MARK_SEEDED(Profile.LWT, "INSERT INTO seededDays (carClass, date) VALUES (?, ?) IF NOT EXISTS"),
+        DELETE_AVAILABLE_CARS(Profile.WRITE, "DELETE FROM availableCars WHERE date = ? AND carClass = ?"),
+        DELETE_AVAILABLE_CARS_BY_CLASS(Profile.WRITE, "DELETE FROM availableCarsByClass WHERE carClass = ? AND date = ?"),
+        DELETE_SLOTS(Profile.WRITE, "DELETE FROM capacitySlots WHERE carClass = ? AND date = ? AND shard = ?");
 
+        public final Profile profile;
         public final String cql;
+        public final boolean lwt;
 
-        Query(String cql) {
+        Query(Profile profile, String cql) {
+            this.profile = profile;
             this.cql = cql;
+            this.lwt = profile == Profile.LWT;
+        }
+    }
+
+    /*
+     * Driver execution profiles, configured from config.properties. Reads and plain
+     * writes are idempotent so the driver may retry them, and reads also get
+     * speculative executions. Counter updates are not idempotent: the driver never
+     * retries them, we only retry errors where the coordinator did not apply the
+     * write. Conditional updates run with their own serial consistency.
+     */
+    public enum Profile {
+        READ, WRITE, COUNTER, LWT;
+
+        public String profileName() {
+            return name().toLowerCase();
         }
     }
 
     private final EnumMap<Query, PreparedStatement> statements = new EnumMap<>(Query.class);
 
     public BackendSession(String contactPointIP, String keyspace) throws BackendException {
+        this(contactPointIP, keyspace, new Properties());
+    }
 
+    public BackendSession(String contactPointIP, String keyspace, Properties config) throws BackendException {
+
+        // requests beyond the concurrency limit wait in the driver queue instead of overloading connections
+        DriverConfigLoader configLoader = DriverConfigLoader.programmaticBuilder()
+                .withString(DefaultDriverOption.REQUEST_THROTTLER_CLASS, "ConcurrencyLimitingRequestThrottler")
+                .withInt(DefaultDriverOption.REQUEST_THROTTLER_MAX_CONCURRENT_REQUESTS,
+                        Integer.parseInt(config.getProperty("driver_max_concurrent_requests", "1024")))
+                .withInt(DefaultDriverOption.REQUEST_THROTTLER_MAX_QUEUE_SIZE,
+                        Integer.parseInt(config.getProperty("driver_max_queue_size", "10000")))
+                .withStringList(DefaultDriverOption.METRICS_SESSION_ENABLED,
+                        List.of("cql-requests", "cql-client-timeouts", "throttling.delay", "throttling.errors", "connected-nodes"))
+                .withStringList(DefaultDriverOption.METRICS_NODE_ENABLED,
+                        List.of("cql-messages", "errors.request.unavailables", "errors.request.write-timeouts",
+                                "errors.request.read-timeouts", "retries.total", "speculative-executions", "pool.in-flight"))
+                .startProfile(Profile.READ.profileName())
+                .withString(DefaultDriverOption.REQUEST_CONSISTENCY, config.getProperty("read_consistency", "LOCAL_ONE"))
+                .withBoolean(DefaultDriverOption.REQUEST_DEFAULT_IDEMPOTENCE, true)
+                .withString(DefaultDriverOption.SPECULATIVE_EXECUTION_POLICY_CLASS, "ConstantSpeculativeExecutionPolicy")
+                .withInt(DefaultDriverOption.SPECULATIVE_EXECUTION_MAX,
+                        Integer.parseInt(config.getProperty("read_speculative_executions", "2")))
+                .withDuration(DefaultDriverOption.SPECULATIVE_EXECUTION_DELAY,
+                        Duration.ofMillis(Long.parseLong(config.getProperty("read_speculative_delay_ms", "50"))))
+                .endProfile()
+                .startProfile(Profile.WRITE.profileName())
+                .withString(DefaultDriverOption.REQUEST_CONSISTENCY, config.getProperty("write_consistency", "LOCAL_ONE"))
+                .withBoolean(DefaultDriverOption.REQUEST_DEFAULT_IDEMPOTENCE, true)
+                .endProfile()
+                .startProfile(Profile.COUNTER.profileName())
+                .withString(DefaultDriverOption.REQUEST_CONSISTENCY, config.getProperty("counter_consistency", "LOCAL_ONE"))
+                .withBoolean(DefaultDriverOption.REQUEST_DEFAULT_IDEMPOTENCE, false)
+                .endProfile()
+                .startProfile(Profile.LWT.profileName())
+                .withString(DefaultDriverOption.REQUEST_CONSISTENCY, config.getProperty("lwt_consistency", "LOCAL_QUORUM"))
+                .withString(DefaultDriverOption.REQUEST_SERIAL_CONSISTENCY, config.getProperty("lwt_serial_consistency", "LOCAL_SERIAL"))
+                .withBoolean(DefaultDriverOption.REQUEST_DEFAULT_IDEMPOTENCE, false)
+                .endProfile()
+                .build();
+        counterMaxRetries = Integer.parseInt(config.getProperty("counter_max_retries", "3"));
+        counterRetryBackoffMs = Long.parseLong(config.getProperty("counter_retry_backoff_ms", "20"));
+        streamPageSize = Integer.parseInt(config.getProperty("stream_page_size", "500"));
         try {
             session = CqlSession.builder()
                     .addContactPoint(new InetSocketAddress(contactPointIP, 9042))
                     .withKeyspace(keyspace)
                     .withLocalDatacenter("datacenter1")
+                    .withConfigLoader(configLoader)
                     .build();
         } catch (Exception e) {
             throw new BackendException("Could not connect to the cluster. " + e.getMessage() + ".", e);
         }
-        for (Query q : Query.values()) {
-            statements.put(q, session.prepare(q.cql));
-            logger.info("Statements prepared");
+        try {
+            for (Query q : Query.values()) {
+                statements.put(q, session.prepare(q.cql));
+                logger.info("Statements prepared");
+            }
+        } catch (RuntimeException e) {
+            // usually a table missing from schema/create_schema.cql
+            session.close();
+            throw new BackendException("Could not prepare statements. " + e.getMessage() + ".", e);
+        }
+
+        metrics.registerMBeans();
+        // the driver's own registry is Dropwizard; export it next to the per-query beans
+        driverMetricsReporter = session.getMetrics()
+                .map(m -> JmxReporter.forRegistry((MetricRegistry) m.getRegistry()).inDomain("cassdemo.driver").build())
+                .orElse(null);
+        if (driverMetricsReporter != null) {
+            driverMetricsReporter.start();
+        }
+    }
+
+    private ResultSet execute(Query query, Statement<?> statement) {
+        Statement<?> profiled = statement.setExecutionProfileName(query.profile.profileName());
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                ResultSet rs = session.execute(profiled);
+                metrics.record(query, System.nanoTime() - start, null);
+                if (query.lwt) {
+                    metrics.recordApplied(query, rs.wasApplied());
+                }
+                return rs;
+            } catch (RuntimeException e) {
+                metrics.record(query, System.nanoTime() - start, e);
+                if (!retryCounterUpdate(query, e, attempt)) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(counterRetryBackoffMs * (attempt + 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
         }
     }
 
+    // for paged reads only the first page is timed
+    private CompletionStage<AsyncResultSet> executeAsync(Query query, Statement<?> statement) {
+        return executeAsync(query, statement.setExecutionProfileName(query.profile.profileName()), 0);
+    }
+
+    private CompletionStage<AsyncResultSet> executeAsync(Query query, Statement<?> statement, int attempt) {
+        long start = System.nanoTime();
+        return session.executeAsync(statement).handle((rs, e) -> {
+            metrics.record(query, System.nanoTime() - start, e);
+            if (e == null) {
+                if (query.lwt) {
+                    metrics.recordApplied(query, rs.wasApplied());
+                }
+                return CompletableFuture.completedStage(rs);
+            }
+            if (!retryCounterUpdate(query, e, attempt)) {
+                return CompletableFuture.<AsyncResultSet>failedStage(e);
+            }
+            Executor delayed = CompletableFuture.delayedExecutor(counterRetryBackoffMs * (attempt + 1), TimeUnit.MILLISECONDS);
+            return CompletableFuture.supplyAsync(() -> null, delayed)
+                    .thenCompose(ignored -> executeAsync(query, statement, attempt + 1));
+        }).thenCompose(stage -> stage);
+    }
+
+    /*
+     * A counter update may only be resent when it certainly was not applied: the
+     * coordinator refused it (unavailable, overloaded) or it never left the client.
+     * Timeouts are not retried, the increment may already have landed.
+     */
+    private boolean retryCounterUpdate(Query query, Throwable error, int attempt) {
+        if (query.profile != Profile.COUNTER || attempt >= counterMaxRetries) {
+            return false;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnavailableException
+                    || cause instanceof OverloadedException
+                    || cause instanceof NoNodeAvailableException) {
+                logger.warn("Retrying " + query + " after " + cause.getClass().getSimpleName() + " (attempt " + (attempt + 1) + ")");
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Optional<QueryMetrics> queryMetrics() {
+        return Optional.of(metrics);
+    }
+
+    @Override
     public long getAvailableCarCount(LocalDate date, String carClass) throws BackendException {
         BoundStatement bs = statements.get(SELECT_AVAILABLE_CARS).bind()
                 .setLocalDate("date", date)
                 .setString("carClass", carClass);
         try {
-            Row row = session.execute(bs).one();
+            Row row = execute(SELECT_AVAILABLE_CARS, bs).one();
             if (row == null) throw new BackendException("No availability data. Run 'initialize'.");
             return row.getLong("count");
         } catch (Exception e) {
@@ -83,43 +288,275 @@ public class BackendSession implements AutoCloseable {
         }
     }
 
-    public void updateAvailableCount(LocalDate date, String carClass, long delta) throws BackendException {
-        Query query = delta > 0 ? ADD_TO_AVAILABLE_CARS : DECREASE_FROM_AVAILABLE_CARS;
-        BoundStatement bs = statements.get(query).bind()
-                .setLong("count", Math.abs(delta))
+    @Override
+    public CompletionStage<Long> getAvailableCarCountAsync(LocalDate date, String carClass) {
+        BoundStatement bs = statements.get(SELECT_AVAILABLE_CARS).bind()
                 .setLocalDate("date", date)
                 .setString("carClass", carClass);
+        return executeAsync(SELECT_AVAILABLE_CARS, bs).handle((rs, e) -> {
+            if (e != null) {
+                logger.error("Failed to get available cars count", e);
+                throw Futures.failure("Query failed: ", e);
+            }
+            Row row = rs.one();
+            if (row == null) throw new CompletionException(new BackendException("No availability data. Run 'initialize'."));
+            return row.getLong("count");
+        });
+    }
+
+    @Override
+    public long[] getAvailableCarCounts(String carClass, LocalDate dateFrom, LocalDate dateTo) throws BackendException {
+        return Futures.join(getAvailableCarCountsAsync(carClass, dateFrom, dateTo));
+    }
+
+    @Override
+    public CompletionStage<long[]> getAvailableCarCountsAsync(String carClass, LocalDate dateFrom, LocalDate dateTo) {
+        BoundStatement bs = statements.get(SELECT_AVAILABLE_CARS_RANGE).bind()
+                .setString("carClass", carClass)
+                .setLocalDate("dateFrom", dateFrom)
+                .setLocalDate("dateTo", dateTo);
+        long[] missing = new long[(int) ChronoUnit.DAYS.between(dateFrom, dateTo) + 1];
+        Arrays.fill(missing, NO_DATA);
+        return executeAsync(SELECT_AVAILABLE_CARS_RANGE, bs)
+                .thenCompose(rs -> collectCounts(rs, dateFrom, missing))
+                .handle((counts, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to get available cars range", e);
+                        throw Futures.failure("Query failed: ", e);
+                    }
+                    return counts;
+                });
+    }
+
+    private CompletionStage<long[]> collectCounts(AsyncResultSet rs, LocalDate dateFrom, long[] counts) {
+        for (Row row : rs.currentPage()) {
+            int day = (int) ChronoUnit.DAYS.between(dateFrom, row.getLocalDate("date"));
+            counts[day] = row.getLong("count");
+        }
+        if (rs.hasMorePages()) {
+            return rs.fetchNextPage().thenCompose(next -> collectCounts(next, dateFrom, counts));
+        }
+        return CompletableFuture.completedFuture(counts);
+    }
+
+    @Override
+    public CompletionStage<boolean[]> getSeededDaysAsync(String carClass, LocalDate dateFrom, LocalDate dateTo) {
+        boolean[] seeded = new boolean[(int) ChronoUnit.DAYS.between(dateFrom, dateTo) + 1];
+        return executeAsync(SELECT_SEEDED_DAYS, statements.get(SELECT_SEEDED_DAYS).bind(carClass, dateFrom, dateTo))
+                .thenCompose(rs -> collectSeededDays(rs, dateFrom, seeded))
+                .handle((days, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to get seeded days", e);
+                        throw Futures.failure("Query failed: ", e);
+                    }
+                    return days;
+                });
+    }
+
+    private CompletionStage<boolean[]> collectSeededDays(AsyncResultSet rs, LocalDate dateFrom, boolean[] seeded) {
+        for (Row row : rs.currentPage()) {
+            seeded[(int) ChronoUnit.DAYS.between(dateFrom, row.getLocalDate("date"))] = true;
+        }
+        if (rs.hasMorePages()) {
+            return rs.fetchNextPage().thenCompose(next -> collectSeededDays(next, dateFrom, seeded));
+        }
+        return CompletableFuture.completedFuture(seeded);
+    }
+
+    @Override
+    public CompletionStage<Boolean> markSeededAsync(String carClass, LocalDate date) {
+        return executeAsync(MARK_SEEDED, statements.get(MARK_SEEDED).bind(carClass, date)).handle((rs, e) -> {
+            if (e != null) {
+                logger.error("Failed to mark a seeded day", e);
+                throw Futures.failure("Insert failed: ", e);
+            }
+            return rs.wasApplied();
+        });
+    }
+
+    // classes without a row come back as NO_DATA
+    @Override
+    public CompletionStage<long[]> getAvailableCarCountsForDateAsync(LocalDate date) {
+        BoundStatement bs = statements.get(SELECT_AVAILABLE_CARS_FOR_DATE).bind().setLocalDate("date", date);
+        long[] missing = new long[CarClass.COUNT];
+        Arrays.fill(missing, NO_DATA);
+        return executeAsync(SELECT_AVAILABLE_CARS_FOR_DATE, bs)
+                .thenCompose(rs -> collectClassCounts(rs, missing))
+                .handle((counts, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to get available cars for date", e);
+                        throw Futures.failure("Query failed: ", e);
+                    }
+                    return counts;
+                });
+    }
+
+    private CompletionStage<long[]> collectClassCounts(AsyncResultSet rs, long[] counts) {
+        for (Row row : rs.currentPage()) {
+            int index = CarClass.indexOf(row.getString("carClass"));
+            if (index >= 0) {
+                counts[index] = row.getLong("count");
+            }
+        }
+        if (rs.hasMorePages()) {
+            return rs.fetchNextPage().thenCompose(next -> collectClassCounts(next, counts));
+        }
+        return CompletableFuture.completedFuture(counts);
+    }
+
+    @Override
+    public long[] getAvailableCarCountsForDate(LocalDate date) throws BackendException {
+        return Futures.join(getAvailableCarCountsForDateAsync(date));
+    }
+
+    @Override
+    public void updateAvailableCount(LocalDate date, String carClass, long delta) throws BackendException {
+        BatchStatement bs = bindAvailableCountUpdate(date, carClass, delta);
         try {
-            session.execute(bs);
+            execute(delta > 0 ? ADD_TO_AVAILABLE_CARS : DECREASE_FROM_AVAILABLE_CARS, bs);
         } catch (Exception e) {
             logger.error("Failed to update available cars count", e);
             throw new BackendException("Update failed: "+e.getMessage(), e);
         }
     }
 
-    public void insertRentalLog(LocalDate dateFrom, UUID renterId, UUID rentalId, LocalDate dateTo, String carClass) throws BackendException {
-        BoundStatement bs = statements.get(MAKE_A_RESERVATION).bind(dateFrom, renterId, rentalId, dateTo, carClass);
+    @Override
+    public CompletionStage<Void> updateAvailableCountAsync(LocalDate date, String carClass, long delta) {
+        return executeAsync(delta > 0 ? ADD_TO_AVAILABLE_CARS : DECREASE_FROM_AVAILABLE_CARS, bindAvailableCountUpdate(date, carClass, delta)).handle((rs, e) -> {
+            if (e != null) {
+                logger.error("Failed to update available cars count", e);
+                throw Futures.failure("Update failed: ", e);
+            }
+            return null;
+        });
+    }
+
+    /*
+     * The by-class table keeps the whole range in one partition, so its updates go
+     * out as a single counter batch; every day of the by-date table is its own
+     * partition and gets its own statement. All of them are sent at once.
+     */
+    @Override
+    public CompletionStage<Void> updateAvailableCountsAsync(String carClass, LocalDate dateFrom, LocalDate dateTo, long delta) {
+        Query byDate = delta > 0 ? ADD_TO_AVAILABLE_CARS : DECREASE_FROM_AVAILABLE_CARS;
+        Query byClass = delta > 0 ? ADD_TO_AVAILABLE_CARS_BY_CLASS : DECREASE_FROM_AVAILABLE_CARS_BY_CLASS;
+        long dayCount = ChronoUnit.DAYS.between(dateFrom, dateTo);
+        List<BatchableStatement<?>> classUpdates = new ArrayList<>();
+        List<CompletionStage<AsyncResultSet>> writes = new ArrayList<>();
+        for (int i = 0; i <= dayCount; i++) {
+            LocalDate date = dateFrom.plusDays(i);
+            classUpdates.add(bindCountUpdate(byClass, date, carClass, delta));
+            writes.add(executeAsync(byDate, bindCountUpdate(byDate, date, carClass, delta)));
+        }
+        writes.add(executeAsync(byClass, BatchStatement.newInstance(BatchType.COUNTER, classUpdates)));
+        return Futures.allOf(writes).handle((v, e) -> {
+            if (e != null) {
+                logger.error("Failed to update available cars counts", e);
+                throw Futures.failure("Update failed: ", e);
+            }
+            return null;
+        });
+    }
+
+    // for repairs, where the two tables may have drifted apart; zero deltas are skipped
+    @Override
+    public CompletionStage<Void> adjustAvailableCountAsync(LocalDate date, String carClass, long byDateDelta, long byClassDelta) {
+        List<BatchableStatement<?>> updates = new ArrayList<>(2);
+        if (byDateDelta != 0) {
+            updates.add(bindCountUpdate(byDateDelta > 0 ? ADD_TO_AVAILABLE_CARS : DECREASE_FROM_AVAILABLE_CARS, date, carClass, byDateDelta));
+        }
+        if (byClassDelta != 0) {
+            updates.add(bindCountUpdate(byClassDelta > 0 ? ADD_TO_AVAILABLE_CARS_BY_CLASS : DECREASE_FROM_AVAILABLE_CARS_BY_CLASS, date, carClass, byClassDelta));
+        }
+        if (updates.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Query query = byDateDelta != 0
+                ? (byDateDelta > 0 ? ADD_TO_AVAILABLE_CARS : DECREASE_FROM_AVAILABLE_CARS)
+                : (byClassDelta > 0 ? ADD_TO_AVAILABLE_CARS_BY_CLASS : DECREASE_FROM_AVAILABLE_CARS_BY_CLASS);
+        return executeAsync(query, BatchStatement.newInstance(BatchType.COUNTER, updates)).handle((rs, e) -> {
+            if (e != null) {
+                logger.error("Failed to adjust available cars count", e);
+                throw Futures.failure("Update failed: ", e);
+            }
+            return null;
+        });
+    }
+
+    // both availability tables are kept in step through one counter batch
+    private BatchStatement bindAvailableCountUpdate(LocalDate date, String carClass, long delta) {
+        Query byDate = delta > 0 ? ADD_TO_AVAILABLE_CARS : DECREASE_FROM_AVAILABLE_CARS;
+        Query byClass = delta > 0 ? ADD_TO_AVAILABLE_CARS_BY_CLASS : DECREASE_FROM_AVAILABLE_CARS_BY_CLASS;
+        return BatchStatement.newInstance(BatchType.COUNTER,
+                bindCountUpdate(byDate, date, carClass, delta),
+                bindCountUpdate(byClass, date, carClass, delta));
+    }
+
+    private BoundStatement bindCountUpdate(Query query, LocalDate date, String carClass, long delta) {
+        return statements.get(query).bind()
+                .setLong("count", Math.abs(delta))
+                .setLocalDate("date", date)
+                .setString("carClass", carClass);
+    }
+
+    @Override
+    public void insertRentalLog(LocalDate dateFrom, UUID renterId, UUID rentalId, LocalDate dateTo, String carClass, List<Integer> slots) throws BackendException {
         try {
-            session.execute(bs);
+            execute(MAKE_A_RESERVATION, bindReservationInsert(dateFrom, renterId, rentalId, dateTo, carClass, slots));
         } catch (Exception e) {
             logger.error("Failed to insert rental log", e);
             throw new BackendException("Insert failed: "+e.getMessage(), e);
         }
     }
 
+    @Override
+    public CompletionStage<Void> insertRentalLogAsync(LocalDate dateFrom, UUID renterId, UUID rentalId, LocalDate dateTo, String carClass, List<Integer> slots) {
+        return executeAsync(MAKE_A_RESERVATION, bindReservationInsert(dateFrom, renterId, rentalId, dateTo, carClass, slots))
+                .handle((rs, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to insert rental log", e);
+                        throw Futures.failure("Insert failed: ", e);
+                    }
+                    return null;
+                });
+    }
+
+    // rentalLog and its renter index are different partitions; the logged batch keeps them in step
+    private BatchStatement bindReservationInsert(LocalDate dateFrom, UUID renterId, UUID rentalId, LocalDate dateTo, String carClass, List<Integer> slots) {
+        return BatchStatement.newInstance(BatchType.LOGGED,
+                statements.get(MAKE_A_RESERVATION).bind(dateFrom, renterId, rentalId, dateTo, carClass, slots),
+                statements.get(INDEX_RESERVATION).bind(renterId, dateFrom, rentalId, dateTo, carClass));
+    }
+
+    private BatchStatement bindReservationDelete(LocalDate dateFrom, UUID renterId, UUID rentalId) {
+        return BatchStatement.newInstance(BatchType.LOGGED,
+                statements.get(DELETE_RESERVATION).bind(dateFrom, renterId, rentalId),
+                statements.get(UNINDEX_RESERVATION).bind(renterId, dateFrom, rentalId));
+    }
+
+    @Override
+    public List<RentalLog> selectRenterReservations(UUID renterId, LocalDate dateFrom) throws BackendException {
+        try {
+            ResultSet rs = execute(SELECT_RENTER_RESERVATIONS, statements.get(SELECT_RENTER_RESERVATIONS).bind(renterId, dateFrom));
+            List<RentalLog> reservations = new ArrayList<>();
+            for (Row row : rs) {
+                reservations.add(toRentalLog(row));
+            }
+            return reservations;
+        } catch (Exception e) {
+            logger.error("Failed to select renter reservations", e);
+            throw new BackendException("Select failed: "+e.getMessage(), e);
+        }
+    }
+
+    @Override
     public ArrayList<RentalLog> selectRentals(LocalDate dateFrom, UUID renterId) throws BackendException {
         BoundStatement bs = statements.get(SELECT_TODAYS_CLIENTS_RENTALS).bind(dateFrom, renterId);
         try {
-            ResultSet rs = session.execute(bs);
+            ResultSet rs = execute(SELECT_TODAYS_CLIENTS_RENTALS, bs);
             ArrayList<RentalLog> rentals = new ArrayList<>();
             for (Row row : rs) {
-                rentals.add(new RentalLog.Builder()
-                        .dateFrom(row.getLocalDate("dateFrom"))
-                        .renterId(row.get("renterId", UUID.class))
-                        .rentalId(row.get("rentalId", UUID.class))
-                        .dateTo(row.getLocalDate("dateTo"))
-                        .carClass(row.getString("carClass"))
-                        .build());
+                rentals.add(toRentalLog(row));
             }
             return rentals;
         } catch (Exception e) {
@@ -128,10 +565,225 @@ public class BackendSession implements AutoCloseable {
         }
     }
 
+    @Override
+    public CompletionStage<List<RentalLog>> selectRentalsAsync(LocalDate dateFrom, UUID renterId) {
+        BoundStatement bs = statements.get(SELECT_TODAYS_CLIENTS_RENTALS).bind(dateFrom, renterId);
+        return executeAsync(SELECT_TODAYS_CLIENTS_RENTALS, bs)
+                .thenCompose(rs -> collectRentals(rs, new ArrayList<>()))
+                .handle((rentals, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to select rentals", e);
+                        throw Futures.failure("Select failed: ", e);
+                    }
+                    return rentals;
+                });
+    }
+
+    private CompletionStage<List<RentalLog>> collectRentals(AsyncResultSet rs, List<RentalLog> rentals) {
+        for (Row row : rs.currentPage()) {
+            rentals.add(toRentalLog(row));
+        }
+        if (rs.hasMorePages()) {
+            return rs.fetchNextPage().thenCompose(next -> collectRentals(next, rentals));
+        }
+        return CompletableFuture.completedFuture(rentals);
+    }
+
+    @Override
+    public CompletionStage<Void> streamRentals(LocalDate dateFrom, Consumer<RentalLog> sink) {
+        BoundStatement bs = statements.get(SELECT_RENTALS_FOR_DATE).bind(dateFrom).setPageSize(streamPageSize);
+        return executeAsync(SELECT_RENTALS_FOR_DATE, bs)
+                .thenComposeAsync(rs -> forEachRow(rs, BackendSession::toRentalLog, sink))
+                .handle((v, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to stream rentals", e);
+                        throw Futures.failure("Select failed: ", e);
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletionStage<Void> streamCarHistory(int carId, Consumer<CarHistoryEntry> sink) {
+        BoundStatement bs = statements.get(SELECT_CAR_HISTORY).bind(carId).setPageSize(streamPageSize);
+        return executeAsync(SELECT_CAR_HISTORY, bs)
+                .thenComposeAsync(rs -> forEachRow(rs, BackendSession::toCarHistoryEntry, sink))
+                .handle((v, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to stream car history", e);
+                        throw Futures.failure("Select failed: ", e);
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletionStage<Void> scanCarHistory(int split, int splits, Consumer<CarHistoryEntry> sink) {
+        long[] range = tokenRange(split, splits);
+        BoundStatement bs = statements.get(SCAN_CAR_HISTORY).bind(range[0], range[1]).setPageSize(streamPageSize);
+        return executeAsync(SCAN_CAR_HISTORY, bs)
+                .thenComposeAsync(rs -> forEachRow(rs, BackendSession::toCarHistoryEntry, sink))
+                .handle((v, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to scan car history", e);
+                        throw Futures.failure("Scan failed: ", e);
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletionStage<Void> scanRentals(int split, int splits, Consumer<RentalLog> sink) {
+        long[] range = tokenRange(split, splits);
+        BoundStatement bs = statements.get(SCAN_RENTALS).bind(range[0], range[1]).setPageSize(streamPageSize);
+        return executeAsync(SCAN_RENTALS, bs)
+                .thenComposeAsync(rs -> forEachRow(rs, BackendSession::toRentalLog, sink))
+                .handle((v, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to scan rentals", e);
+                        throw Futures.failure("Scan failed: ", e);
+                    }
+                    return null;
+                });
+    }
+
+    /*
+     * Bounds (start, end] of one of `splits` equal slices of the Murmur3 token ring.
+     * Slices are independent of the cluster topology, so a scan can be split as
+     * finely as the caller wants to parallelize it.
+     */
+    static long[] tokenRange(int split, int splits) {
+        BigInteger min = BigInteger.valueOf(Long.MIN_VALUE);
+        BigInteger width = BigInteger.valueOf(Long.MAX_VALUE).subtract(min);
+        long start = min.add(width.multiply(BigInteger.valueOf(split)).divide(BigInteger.valueOf(splits))).longValue();
+        long end = split == splits - 1
+                ? Long.MAX_VALUE
+                : min.add(width.multiply(BigInteger.valueOf(split + 1)).divide(BigInteger.valueOf(splits))).longValue();
+        return new long[]{start, end};
+    }
+
+    /*
+     * Hands one page at a time to the sink and only then asks for the next one, so
+     * memory stays at a page whatever the partition size. Sinks run off the driver's
+     * I/O threads and may block, e.g. on file writes.
+     */
+    private <T> CompletionStage<Void> forEachRow(AsyncResultSet rs, Function<Row, T> mapper, Consumer<? super T> sink) {
+        for (Row row : rs.currentPage()) {
+            sink.accept(mapper.apply(row));
+        }
+        if (rs.hasMorePages()) {
+            return rs.fetchNextPage().thenComposeAsync(next -> forEachRow(next, mapper, sink));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    static CarHistoryEntry toCarHistoryEntry(Row row) {
+        return new CarHistoryEntry(
+                row.getInt("carId"),
+                row.getLocalDate("dateFrom"),
+                row.getLocalDate("dateTo"),
+                row.getLocalDate("dateReceived"),
+                row.get("renterId", UUID.class),
+                row.get("rentalId", UUID.class));
+    }
+
+    // rentalLog selects list dateFrom, renterId, rentalId, dateTo, carClass in this order
+    static RentalLog toRentalLog(Row row) {
+        return new RentalLog(row.getLocalDate(0), row.getUuid(1), row.getUuid(2), row.getLocalDate(3), row.getString(4));
+    }
+
+    @Override
+    public List<Integer> getReservationSlots(LocalDate dateFrom, UUID renterId, UUID rentalId) throws BackendException {
+        try {
+            Row row = execute(SELECT_RESERVATION_SLOTS, statements.get(SELECT_RESERVATION_SLOTS).bind(dateFrom, renterId, rentalId)).one();
+            if (row == null) throw new BackendException("Reservation not found");
+            return row.getList("slots", Integer.class);
+        } catch (Exception e) {
+            logger.error("Failed to get reservation slots", e);
+            throw new BackendException("Select failed: "+e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public CompletionStage<List<Integer>> getReservationSlotsAsync(LocalDate dateFrom, UUID renterId, UUID rentalId) {
+        return executeAsync(SELECT_RESERVATION_SLOTS, statements.get(SELECT_RESERVATION_SLOTS).bind(dateFrom, renterId, rentalId))
+                .handle((rs, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to get reservation slots", e);
+                        throw Futures.failure("Select failed: ", e);
+                    }
+                    Row row = rs.one();
+                    if (row == null) throw new CompletionException(new BackendException("Reservation not found"));
+                    return row.getList("slots", Integer.class);
+                });
+    }
+
+    @Override
+    public CompletionStage<int[]> getClaimedSlotsAsync(String carClass, LocalDate date, int shard) {
+        return executeAsync(SELECT_CLAIMED_SLOTS, statements.get(SELECT_CLAIMED_SLOTS).bind(carClass, date, shard))
+                .thenCompose(rs -> collectSlots(rs, new ArrayList<>()))
+                .handle((slots, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to get claimed slots", e);
+                        throw Futures.failure("Query failed: ", e);
+                    }
+                    return slots;
+                });
+    }
+
+    private CompletionStage<int[]> collectSlots(AsyncResultSet rs, List<Integer> slots) {
+        for (Row row : rs.currentPage()) {
+            slots.add(row.getInt("slot"));
+        }
+        if (rs.hasMorePages()) {
+            return rs.fetchNextPage().thenCompose(next -> collectSlots(next, slots));
+        }
+        return CompletableFuture.completedFuture(slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Override
+    public CompletionStage<Boolean> claimSlotAsync(String carClass, LocalDate date, int shard, int slot, UUID rentalId) {
+        return executeAsync(CLAIM_SLOT, statements.get(CLAIM_SLOT).bind(rentalId, carClass, date, shard, slot)).handle((rs, e) -> {
+            if (e != null) {
+                logger.error("Failed to claim capacity slot", e);
+                throw Futures.failure("Slot claim failed: ", e);
+            }
+            return rs.wasApplied();
+        });
+    }
+
+    @Override
+    public CompletionStage<Boolean> releaseSlotAsync(String carClass, LocalDate date, int shard, int slot, UUID rentalId) {
+        return executeAsync(RELEASE_SLOT, statements.get(RELEASE_SLOT).bind(carClass, date, shard, slot, rentalId)).handle((rs, e) -> {
+            if (e != null) {
+                logger.error("Failed to release capacity slot", e);
+                throw Futures.failure("Slot release failed: ", e);
+            }
+            return rs.wasApplied();
+        });
+    }
+
+    @Override
+    public int[] getRentedCarIds() throws BackendException {
+        try {
+            List<Integer> rented = new ArrayList<>();
+            for (Row row : execute(SELECT_ALL_CAR_RENTALS, statements.get(SELECT_ALL_CAR_RENTALS).bind())) {
+                if (!row.isNull("rentalId")) {
+                    rented.add(row.getInt("carId"));
+                }
+            }
+            return rented.stream().mapToInt(Integer::intValue).toArray();
+        } catch (Exception e) {
+            logger.error("Failed to get car rentals", e);
+            throw new BackendException("Car rentals lookup failed: "+e.getMessage(), e);
+        }
+    }
+
+    @Override
     public boolean tryAssignCar(int carId, UUID rentalId) throws BackendException {
         BoundStatement bs = statements.get(TRY_RENTING_CAR).bind(rentalId, carId);
         try {
-            Row row = session.execute(bs).one();
+            Row row = execute(TRY_RENTING_CAR, bs).one();
             return row != null && row.getBoolean("[applied]");
         } catch (Exception e) {
             logger.error("Failed to assign car", e);
@@ -139,37 +791,56 @@ public class BackendSession implements AutoCloseable {
         }
     }
 
+    @Override
     public void addRentalToHistory(int carId, LocalDate dateFrom, LocalDate dateTo, UUID renterId, UUID rentalId) throws BackendException {
         BoundStatement bs = statements.get(ADD_RENTAL_TO_HISTORY).bind(carId, dateFrom, dateTo, renterId, rentalId);
         try {
-            session.execute(bs);
+            execute(ADD_RENTAL_TO_HISTORY, bs);
         } catch (Exception e) {
             logger.error("Failed to insert rental history", e);
             throw new BackendException("History insert failed: "+e.getMessage(), e);
         }
     }
 
+    @Override
     public void removeCarAssignment(int carId) throws BackendException {
         try {
-            session.execute(statements.get(DELETE_CURRENT_CAR_RENTAL).bind(carId));
+            execute(DELETE_CURRENT_CAR_RENTAL, statements.get(DELETE_CURRENT_CAR_RENTAL).bind(carId));
         } catch (Exception e) {
             logger.error("Failed to delete car assignment", e);
             throw new BackendException("Delete assignment failed: "+e.getMessage(), e);
         }
     }
 
+    // carRentals and carHistory are both keyed by carId, so the batch is a single-partition write
+    @Override
+    public CompletionStage<Void> returnCarAsync(int carId, LocalDate dateFrom, LocalDate dateTo, LocalDate dateReceived) {
+        BatchStatement batch = BatchStatement.newInstance(BatchType.UNLOGGED,
+                statements.get(DELETE_CURRENT_CAR_RENTAL).bind(carId),
+                statements.get(UPDATE_DATE_RECEIVED).bind(dateReceived, carId, dateFrom, dateTo));
+        return executeAsync(DELETE_CURRENT_CAR_RENTAL, batch).handle((rs, e) -> {
+            if (e != null) {
+                logger.error("Failed to return car", e);
+                throw Futures.failure("Return failed: ", e);
+            }
+            return null;
+        });
+    }
+
+    @Override
     public void updateHistoryReturnDate(int carId, LocalDate dateFrom, LocalDate dateTo, LocalDate dateReceived) throws BackendException {
         try {
-            session.execute(statements.get(UPDATE_DATE_RECEIVED).bind(dateReceived, carId, dateFrom, dateTo));
+            execute(UPDATE_DATE_RECEIVED, statements.get(UPDATE_DATE_RECEIVED).bind(dateReceived, carId, dateFrom, dateTo));
         } catch (Exception e) {
             logger.error("Failed to update rental history", e);
             throw new BackendException("History update failed: "+e.getMessage(), e);
         }
     }
 
+    @Override
     public List<Integer> getCarIdsByClass(String carClass) throws BackendException {
         try {
-            Row row = session.execute(statements.get(SELECT_ALL_CAR_IDS).bind(carClass)).one();
+            Row row = execute(SELECT_ALL_CAR_IDS, statements.get(SELECT_ALL_CAR_IDS).bind(carClass)).one();
             return row != null ? row.getList("carIdList", Integer.class) : new ArrayList<>();
         } catch (Exception e) {
             logger.error("Failed to get car ids", e);
@@ -177,9 +848,10 @@ public class BackendSession implements AutoCloseable {
         }
     }
 
+    @Override
     public Car getCarDetails(Integer carId) throws BackendException {
         try {
-            Row row = session.execute(statements.get(SELECT_CAR_DETAILS).bind(carId)).one();
+            Row row = execute(SELECT_CAR_DETAILS, statements.get(SELECT_CAR_DETAILS).bind(carId)).one();
             if (row == null) throw new BackendException("Car not found");
             return new Car(row.getInt("carId"), row.getString("carName"), row.getString("carClass"), row.getString("licensePlate"));
         } catch (Exception e) {
@@ -188,17 +860,88 @@ public class BackendSession implements AutoCloseable {
         }
     }
 
-    public void deleteReservation(LocalDate dateFrom, UUID clientId, UUID rentalId, LocalDate dateTo, String carClass) throws BackendException {
+    @Override
+    public Map<String, List<Integer>> getAllCarIdsByClass() throws BackendException {
+        try {
+            Map<String, List<Integer>> carIds = new HashMap<>();
+            for (Row row : execute(SELECT_ALL_CAR_CLASSES, statements.get(SELECT_ALL_CAR_CLASSES).bind())) {
+                carIds.put(row.getString("carClass"), row.getList("carIdList", Integer.class));
+            }
+            return carIds;
+        } catch (Exception e) {
+            logger.error("Failed to get car classes", e);
+            throw new BackendException("Car lookup failed: "+e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<Car> getAllCarDetails() throws BackendException {
+        try {
+            List<Car> cars = new ArrayList<>();
+            for (Row row : execute(SELECT_ALL_CAR_DETAILS, statements.get(SELECT_ALL_CAR_DETAILS).bind())) {
+                cars.add(new Car(row.getInt("carId"), row.getString("carName"), row.getString("carClass"), row.getString("licensePlate")));
+            }
+            return cars;
+        } catch (Exception e) {
+            logger.error("Failed to get car details", e);
+            throw new BackendException("Details lookup failed: "+e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void deleteReservation(LocalDate dateFrom, UUID clientId, UUID rentalId) throws BackendException {
         try {
-            session.execute(statements.get(DELETE_RESERVATION).bind(dateFrom, clientId, rentalId, dateTo, carClass)).one();
+            execute(DELETE_RESERVATION, bindReservationDelete(dateFrom, clientId, rentalId));
         } catch (Exception e) {
             logger.error("Failed to delete reservation", e);
             throw new BackendException("Delete reservation failed: "+e.getMessage(), e);
         }
     }
 
+    @Override
+    public CompletionStage<Void> deleteReservationAsync(LocalDate dateFrom, UUID clientId, UUID rentalId) {
+        return executeAsync(DELETE_RESERVATION, bindReservationDelete(dateFrom, clientId, rentalId))
+                .handle((rs, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to delete reservation", e);
+                        throw Futures.failure("Delete reservation failed: ", e);
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletionStage<Void> deleteAvailableCountAsync(LocalDate date, String carClass) {
+        return Futures.allOf(List.of(
+                        executeAsync(DELETE_AVAILABLE_CARS, statements.get(DELETE_AVAILABLE_CARS).bind(date, carClass)),
+                        executeAsync(DELETE_AVAILABLE_CARS_BY_CLASS, statements.get(DELETE_AVAILABLE_CARS_BY_CLASS).bind(carClass, date))))
+                .handle((v, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to delete available cars", e);
+                        throw Futures.failure("Delete available cars failed: ", e);
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletionStage<Void> deleteSlotsAsync(String carClass, LocalDate date, int shard) {
+        return executeAsync(DELETE_SLOTS, statements.get(DELETE_SLOTS).bind(carClass, date, shard))
+                .handle((rs, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to delete capacity slots", e);
+                        throw Futures.failure("Delete capacity slots failed: ", e);
+                    }
+                    return null;
+                });
+    }
+
     @Override
     public void close() {
+        if (driverMetricsReporter != null) {
+            driverMetricsReporter.close();
+        }
+        metrics.close();
         if (session != null) {
             session.close();
         }
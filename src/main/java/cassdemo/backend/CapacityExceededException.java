@@ -0,0 +1,12 @@
+package cassdemo.backend;
+
+import java.time.LocalDate;
+
+// every capacity slot of a day is taken; the request itself was fine and nothing stays claimed
+public class CapacityExceededException extends BackendException {
+	private static final long serialVersionUID = 1L;
+
+	public CapacityExceededException(String carClass, LocalDate date) {
+		super("Not enough cars available in class " + carClass + " for date " + date);
+	}
+}
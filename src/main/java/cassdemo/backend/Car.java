@@ -1,12 +1,9 @@
 package cassdemo.backend;
 
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.List;
 
 public class Car {
-    private static final LinkedList<String> CAR_CLASSES = new LinkedList<>(Arrays.asList(
-            "A", "B", "C", "D", "E", "F", "S"
-    ));
+    private static final List<String> CAR_CLASSES = CarClass.names(CarClass.ALL);
 
     private final Integer carId;
     private final String carName;
@@ -37,7 +34,7 @@ public class Car {
         return licensePlate;
     }
 
-    public static LinkedList<String> getCarClasses() {
+    public static List<String> getCarClasses() {
         return CAR_CLASSES;
     }
 
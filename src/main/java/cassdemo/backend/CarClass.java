@@ -0,0 +1,64 @@
+package cassdemo.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Rental classes in upgrade order: a reservation may be served by its own class
+ * or any later one. The name is what the tables store, the ordinal indexes
+ * per-class arrays and is the bit of the class in a class mask.
+ */
+public enum CarClass {
+    A, B, C, D, E, F, S;
+
+    private static final CarClass[] VALUES = values();
+    public static final int COUNT = VALUES.length;
+    public static final int ALL = (1 << COUNT) - 1;
+
+    // class names are single letters, so a lookup is one array read
+    private static final byte[] BY_LETTER = new byte[128];
+
+    static {
+        Arrays.fill(BY_LETTER, (byte) -1);
+        for (CarClass carClass : VALUES) {
+            BY_LETTER[carClass.name().charAt(0)] = (byte) carClass.ordinal();
+        }
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    // next class up, or null for the top class
+    public CarClass upgrade() {
+        int next = ordinal() + 1;
+        return next < COUNT ? VALUES[next] : null;
+    }
+
+    public static CarClass of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    // ordinal of the named class, -1 when there is no such class
+    public static int indexOf(String name) {
+        if (name == null || name.length() != 1) return -1;
+        char letter = name.charAt(0);
+        return letter < BY_LETTER.length ? BY_LETTER[letter] : -1;
+    }
+
+    public static CarClass parse(String name) {
+        int index = indexOf(name);
+        return index < 0 ? null : VALUES[index];
+    }
+
+    public static List<String> names(int mask) {
+        List<String> names = new ArrayList<>(Integer.bitCount(mask));
+        for (CarClass carClass : VALUES) {
+            if ((mask & carClass.bit()) != 0) {
+                names.add(carClass.name());
+            }
+        }
+        return names;
+    }
+}
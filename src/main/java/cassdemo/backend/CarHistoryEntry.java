@@ -0,0 +1,47 @@
+package cassdemo.backend;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public class CarHistoryEntry {
+    private final int carId;
+    private final LocalDate dateFrom;
+    private final LocalDate dateTo;
+    private final LocalDate dateReceived;
+    private final UUID renterId;
+    private final UUID rentalId;
+
+    // dateReceived is null while the car is still out
+    public CarHistoryEntry(int carId, LocalDate dateFrom, LocalDate dateTo, LocalDate dateReceived, UUID renterId, UUID rentalId) {
+        this.carId = carId;
+        this.dateFrom = dateFrom;
+        this.dateTo = dateTo;
+        this.dateReceived = dateReceived;
+        this.renterId = renterId;
+        this.rentalId = rentalId;
+    }
+
+    public int getCarId() {
+        return carId;
+    }
+
+    public LocalDate getDateFrom() {
+        return dateFrom;
+    }
+
+    public LocalDate getDateTo() {
+        return dateTo;
+    }
+
+    public LocalDate getDateReceived() {
+        return dateReceived;
+    }
+
+    public UUID getRenterId() {
+        return renterId;
+    }
+
+    public UUID getRentalId() {
+        return rentalId;
+    }
+}
@@ -0,0 +1,132 @@
+package cassdemo.backend;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Hammers a single (class, day) from many threads, once with the old
+ * read-check-decrement counter logic and once with capacity slots, and
+ * reports how many reservations each approach let through beyond capacity.
+ * It runs against a scratch class on far-future dates so real data is
+ * never touched, and deletes its scratch counters and slots when done.
+ */
+public class ContentionBenchmark {
+    private static final String BENCH_CLASS = "BENCH";
+
+    private final StorageBackend session;
+    private final SlotReservationEngine slotEngine;
+
+    public ContentionBenchmark(StorageBackend session, SlotReservationEngine slotEngine) {
+        this.session = session;
+        this.slotEngine = slotEngine;
+    }
+
+    public List<Result> run(int threads, int attempts, int capacity) throws BackendException {
+        LocalDate counterDay = scratchDate();
+        LocalDate slotDay = counterDay.plusDays(1);
+        List<Result> results = new ArrayList<>();
+        try {
+            session.updateAvailableCount(counterDay, BENCH_CLASS, capacity);
+            results.add(measure("counters", threads, attempts, capacity, () -> {
+                if (session.getAvailableCarCount(counterDay, BENCH_CLASS) <= 0) return false;
+                session.updateAvailableCount(counterDay, BENCH_CLASS, -1L);
+                return true;
+            }));
+            results.add(measure("slots", threads, attempts, capacity, () -> {
+                int[] slots = slotEngine.claim(UUID.randomUUID(), BENCH_CLASS, slotDay, slotDay, capacity);
+                return slots[0] != SlotReservationEngine.NO_SLOT;
+            }));
+        } finally {
+            Futures.join(Futures.allOf(List.of(
+                    session.deleteAvailableCountAsync(counterDay, BENCH_CLASS),
+                    slotEngine.dropAsync(BENCH_CLASS, slotDay))));
+        }
+        return results;
+    }
+
+    private Result measure(String approach, int threads, int attempts, int capacity, Attempt attempt) throws BackendException {
+        AtomicInteger remaining = new AtomicInteger(attempts);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        try {
+                            if (attempt.run()) reserved.incrementAndGet();
+                        } catch (BackendException e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (Exception e) {
+            throw new BackendException("Benchmark interrupted: " + e.getMessage(), e);
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        return new Result(approach, attempts, reserved.get(), Math.max(0, reserved.get() - capacity), failed.get(), elapsedNanos);
+    }
+
+    private static LocalDate scratchDate() {
+        return LocalDate.of(2100, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(0, 36_500) * 2L);
+    }
+
+    private interface Attempt {
+        boolean run() throws BackendException;
+    }
+
+    public static class Result {
+        private final String approach;
+        private final int attempts;
+        private final int reserved;
+        private final int oversold;
+        private final int errors;
+        private final long elapsedNanos;
+
+        public Result(String approach, int attempts, int reserved, int oversold, int errors, long elapsedNanos) {
+            this.approach = approach;
+            this.attempts = attempts;
+            this.reserved = reserved;
+            this.oversold = oversold;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getApproach() {
+            return approach;
+        }
+
+        public int getReserved() {
+            return reserved;
+        }
+
+        public int getOversold() {
+            return oversold;
+        }
+
+        public double getThroughput() {
+            return attempts / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s attempts=%d reserved=%d oversold=%d errors=%d elapsed=%dms throughput=%.1f ops/s",
+                    approach, attempts, reserved, oversold, errors, elapsedNanos / 1_000_000, getThroughput());
+        }
+    }
+}
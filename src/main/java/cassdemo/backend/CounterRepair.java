@@ -0,0 +1,238 @@
+package cassdemo.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/*
+ * Reconciles availableCars and availableCarsByClass with rentalLog. Every
+ * reservation covers its class from dateFrom through dateTo, so the expected
+ * count of a (class, day) is fleet capacity minus the reservations covering it.
+ *
+ * Counters are read before and after the rentalLog scan; a cell that moved in
+ * between is being booked right now and is left for the next run instead of
+ * being "corrected" against a stale scan. Every writer changes its rentalLog
+ * row first and the counters after it (reserve, delete, import), so once the
+ * second read waits out `settleMillis` past the scan, a booking the scan saw
+ * or missed either already shows in both reads or moves the cell in between.
+ * The wait has to outlast the gap between a row write and its counter write.
+ *
+ * Cells without a seededDays marker are skipped: their counters belong to the
+ * seeder, which would add capacity on top of anything written here.
+ * Correcting writes are rate limited.
+ */
+public class CounterRepair {
+    private static final Logger logger = LoggerFactory.getLogger(CounterRepair.class);
+
+    private final StorageBackend session;
+    private final FleetIndex fleet;
+    private final int splits;
+    private final int parallelism;
+    private final long settleMillis;
+
+    public CounterRepair(StorageBackend session, FleetIndex fleet, int splits, int parallelism, long settleMillis) {
+        this.session = session;
+        this.fleet = fleet;
+        this.splits = Math.max(1, splits);
+        this.parallelism = Math.max(1, parallelism);
+        this.settleMillis = Math.max(0, settleMillis);
+    }
+
+    public Report run(LocalDate dateFrom, LocalDate dateTo, boolean dryRun, double writesPerSecond) throws BackendException {
+        List<String> carClasses = Car.getCarClasses();
+        int days = (int) ChronoUnit.DAYS.between(dateFrom, dateTo) + 1;
+
+        boolean[] seeded = readSeeded(carClasses, dateFrom, dateTo, days);
+        Counters before = readCounters(carClasses, dateFrom, dateTo, days);
+        int[] booked = scanBookings(carClasses, dateFrom, dateTo, days);
+        settle();
+        Counters after = readCounters(carClasses, dateFrom, dateTo, days);
+
+        Report report = new Report(dryRun);
+        RateLimiter limiter = new RateLimiter(writesPerSecond);
+        List<CompletionStage<Void>> writes = new ArrayList<>();
+        for (int c = 0; c < carClasses.size(); c++) {
+            String carClass = carClasses.get(c);
+            long capacity = fleet.capacity(carClass);
+            for (int day = 0; day < days; day++) {
+                int cell = c * days + day;
+                report.checked++;
+                if (!seeded[cell]) {
+                    report.unseeded++;
+                    continue;
+                }
+                if (before.byDate[cell] != after.byDate[cell] || before.byClass[cell] != after.byClass[cell]) {
+                    report.busy++;
+                    continue;
+                }
+                long expected = capacity - booked[cell];
+                long byDateDelta = expected - valueOf(after.byDate[cell]);
+                long byClassDelta = expected - valueOf(after.byClass[cell]);
+                if (byDateDelta == 0 && byClassDelta == 0) continue;
+
+                LocalDate date = dateFrom.plusDays(day);
+                report.corrections.add(String.format("%s %s: expected %d, availableCars %s (%+d), availableCarsByClass %s (%+d)",
+                        date, carClass, expected, show(after.byDate[cell]), byDateDelta, show(after.byClass[cell]), byClassDelta));
+                if (!dryRun) {
+                    try {
+                        limiter.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new BackendException("Repair interrupted.", e);
+                    }
+                    writes.add(session.adjustAvailableCountAsync(date, carClass, byDateDelta, byClassDelta));
+                }
+            }
+        }
+        Futures.join(Futures.allOf(writes));
+        logger.info("Counter repair {} to {}: {} corrections{}, {} cells skipped as busy, {} not seeded",
+                dateFrom, dateTo, report.corrections.size(), dryRun ? " (dry run)" : "", report.busy, report.unseeded);
+        return report;
+    }
+
+    private void settle() throws BackendException {
+        if (settleMillis == 0) return;
+        try {
+            Thread.sleep(settleMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackendException("Repair interrupted.", e);
+        }
+    }
+
+    // a seeded counter whose write never landed counts as zero
+    private static long valueOf(long count) {
+        return count == StorageBackend.NO_DATA ? 0 : count;
+    }
+
+    private static String show(long count) {
+        return count == StorageBackend.NO_DATA ? "missing" : Long.toString(count);
+    }
+
+    private boolean[] readSeeded(List<String> carClasses, LocalDate dateFrom, LocalDate dateTo, int days) throws BackendException {
+        boolean[] seeded = new boolean[carClasses.size() * days];
+        List<CompletionStage<Void>> reads = new ArrayList<>();
+        for (int c = 0; c < carClasses.size(); c++) {
+            int offset = c * days;
+            reads.add(session.getSeededDaysAsync(carClasses.get(c), dateFrom, dateTo)
+                    .thenAccept(row -> System.arraycopy(row, 0, seeded, offset, days)));
+        }
+        Futures.join(Futures.allOf(reads));
+        return seeded;
+    }
+
+    private Counters readCounters(List<String> carClasses, LocalDate dateFrom, LocalDate dateTo, int days) throws BackendException {
+        Counters counters = new Counters(carClasses.size() * days);
+        List<CompletionStage<Void>> reads = new ArrayList<>();
+        for (int c = 0; c < carClasses.size(); c++) {
+            int offset = c * days;
+            reads.add(session.getAvailableCarCountsAsync(carClasses.get(c), dateFrom, dateTo)
+                    .thenAccept(row -> System.arraycopy(row, 0, counters.byClass, offset, days)));
+        }
+        Futures.join(Futures.allOf(reads));
+
+        // one partition per day in availableCars, read `parallelism` days at a time
+        for (int start = 0; start < days; start += parallelism) {
+            List<CompletionStage<Void>> window = new ArrayList<>(parallelism);
+            for (int day = start; day < Math.min(days, start + parallelism); day++) {
+                int current = day;
+                window.add(session.getAvailableCarCountsForDateAsync(dateFrom.plusDays(day)).thenAccept(row -> {
+                    for (int c = 0; c < row.length; c++) {
+                        counters.byDate[c * days + current] = row[c];
+                    }
+                }));
+            }
+            Futures.join(Futures.allOf(window));
+        }
+        return counters;
+    }
+
+    private int[] scanBookings(List<String> carClasses, LocalDate dateFrom, LocalDate dateTo, int days) throws BackendException {
+        Semaphore permits = new Semaphore(parallelism);
+        List<Future<int[]>> scans = new ArrayList<>(splits);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int split = 0; split < splits; split++) {
+                int current = split;
+                scans.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        int[] booked = new int[carClasses.size() * days];
+                        Futures.join(session.scanRentals(current, splits, bookingsInto(booked, carClasses, dateFrom, dateTo, days)));
+                        return booked;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+
+        int[] total = new int[carClasses.size() * days];
+        for (Future<int[]> scan : scans) {
+            if (scan.state() != Future.State.SUCCESS) {
+                Throwable cause = scan.exceptionNow();
+                throw cause instanceof BackendException
+                        ? (BackendException) cause
+                        : new BackendException("Rental scan failed: " + cause.getMessage(), new RuntimeException(cause));
+            }
+            int[] booked = scan.resultNow();
+            for (int i = 0; i < total.length; i++) {
+                total[i] += booked[i];
+            }
+        }
+        return total;
+    }
+
+    private static Consumer<RentalLog> bookingsInto(int[] booked, List<String> carClasses, LocalDate dateFrom, LocalDate dateTo, int days) {
+        return log -> {
+            int c = CarClass.indexOf(log.getCarClass());
+            if (c < 0) return;
+            LocalDate first = log.getDateFrom().isBefore(dateFrom) ? dateFrom : log.getDateFrom();
+            LocalDate last = log.getDateTo().isAfter(dateTo) ? dateTo : log.getDateTo();
+            for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+                booked[c * days + (int) ChronoUnit.DAYS.between(dateFrom, date)]++;
+            }
+        };
+    }
+
+    private static class Counters {
+        private final long[] byDate;
+        private final long[] byClass;
+
+        Counters(int cells) {
+            this.byDate = new long[cells];
+            this.byClass = new long[cells];
+        }
+    }
+
+    public static class Report {
+        private final boolean dryRun;
+        private final List<String> corrections = new ArrayList<>();
+        private int checked;
+        private int busy;
+        private int unseeded;
+
+        private Report(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        public List<String> getCorrections() {
+            return corrections;
+        }
+
+        public String summary() {
+            return String.format("%d class-days checked, %d %s, %d skipped because they changed during the scan, "
+                            + "%d skipped because they are not seeded yet",
+                    checked, corrections.size(), dryRun ? "would be corrected (dry run)" : "corrected", busy, unseeded);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package cassdemo.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * In-process copy of carClasses and carDetails. The fleet changes rarely, so
+ * the rent path reads car ids and details from here instead of Cassandra.
+ * A refresh builds a new snapshot and swaps it in, readers never block.
+ * The listener runs on the refresh thread after every timed refresh.
+ */
+public class FleetIndex implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FleetIndex.class);
+    private static final int[] NO_CARS = new int[0];
+
+    private final StorageBackend session;
+    private final Listener listener;
+    private final ScheduledExecutorService refresher;
+    private volatile Snapshot snapshot;
+
+    public FleetIndex(StorageBackend session, long refreshSeconds, Listener listener) throws BackendException {
+        this.session = session;
+        this.listener = listener;
+        refresh();
+        if (refreshSeconds > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "fleet-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        } else {
+            refresher = null;
+        }
+    }
+
+    public void refresh() throws BackendException {
+        snapshot = new Snapshot(session.getAllCarIdsByClass(), session.getAllCarDetails());
+        logger.info("Fleet index loaded: {} cars", snapshot.carCount);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (BackendException e) {
+            logger.warn("Fleet refresh failed, keeping previous snapshot", e);
+            return;
+        }
+        try {
+            listener.refreshed();
+        } catch (BackendException | RuntimeException e) {
+            logger.warn("Fleet refresh listener failed", e);
+        }
+    }
+
+    // the returned array is shared and must not be modified
+    public int[] carIds(String carClass) {
+        int index = CarClass.indexOf(carClass);
+        return index < 0 ? NO_CARS : snapshot.carIdsByClass[index];
+    }
+
+    public int[] carIds(CarClass carClass) {
+        return snapshot.carIdsByClass[carClass.ordinal()];
+    }
+
+    public int capacity(String carClass) {
+        return carIds(carClass).length;
+    }
+
+    public Car car(int carId) {
+        Car[] cars = snapshot.carsById;
+        return carId >= 0 && carId < cars.length ? cars[carId] : null;
+    }
+
+    public int maxCarId() {
+        return snapshot.carsById.length - 1;
+    }
+
+    public int carCount() {
+        return snapshot.carCount;
+    }
+
+    @Override
+    public void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    public interface Listener {
+        void refreshed() throws BackendException;
+    }
+
+    private static class Snapshot {
+        private final int[][] carIdsByClass;
+        private final Car[] carsById;
+        private final int carCount;
+
+        // car ids index arrays here and in the free-car bitmap, so rows with a negative id are skipped
+        Snapshot(Map<String, List<Integer>> carIds, List<Car> cars) {
+            List<String> carClasses = Car.getCarClasses();
+            carIdsByClass = new int[carClasses.size()][];
+            for (int i = 0; i < carIdsByClass.length; i++) {
+                List<Integer> ids = carIds.get(carClasses.get(i));
+                carIdsByClass[i] = ids == null ? NO_CARS : validIds(carClasses.get(i), ids);
+            }
+
+            int maxId = -1;
+            int count = 0;
+            for (Car car : cars) {
+                if (car.getCarId() < 0) {
+                    logger.warn("Skipping carDetails row with negative carId {}", car.getCarId());
+                    continue;
+                }
+                maxId = Math.max(maxId, car.getCarId());
+                count++;
+            }
+            carsById = new Car[maxId + 1];
+            for (Car car : cars) {
+                if (car.getCarId() >= 0) {
+                    carsById[car.getCarId()] = car;
+                }
+            }
+            carCount = count;
+        }
+
+        private static int[] validIds(String carClass, List<Integer> ids) {
+            return ids.stream().mapToInt(Integer::intValue).filter(carId -> {
+                if (carId >= 0) return true;
+                logger.warn("Skipping carClasses row with negative carId {} in class {}", carId, carClass);
+                return false;
+            }).toArray();
+        }
+    }
+}
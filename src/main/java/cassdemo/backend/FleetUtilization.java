@@ -0,0 +1,203 @@
+package cassdemo.backend;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/*
+ * Utilization, idle time and late returns per car and per class over a period,
+ * computed from carHistory. The table is scanned in token-range splits, several
+ * at a time; every split folds its rows into its own primitive arrays (indexed by
+ * carId and by day), which are summed at the end. No history row is kept.
+ *
+ * A rental occupies its car from dateFrom through dateReceived, or through
+ * today when the car has not come back yet.
+ */
+public class FleetUtilization {
+
+    private final StorageBackend session;
+    private final FleetIndex fleet;
+    private final int splits;
+    private final int parallelism;
+
+    public FleetUtilization(StorageBackend session, FleetIndex fleet, int splits, int parallelism) {
+        this.session = session;
+        this.fleet = fleet;
+        this.splits = Math.max(1, splits);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public Report compute(LocalDate dateFrom, LocalDate dateTo) throws BackendException {
+        int days = (int) ChronoUnit.DAYS.between(dateFrom, dateTo) + 1;
+        int carSlots = fleet.maxCarId() + 1;
+        LocalDate today = LocalDate.now();
+
+        Semaphore permits = new Semaphore(parallelism);
+        List<Future<Totals>> scans = new ArrayList<>(splits);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int split = 0; split < splits; split++) {
+                int current = split;
+                scans.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        Totals totals = new Totals(carSlots, days, dateFrom, dateTo, today);
+                        Futures.join(session.scanCarHistory(current, splits, totals));
+                        return totals;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+
+        Totals merged = new Totals(carSlots, days, dateFrom, dateTo, today);
+        for (Future<Totals> scan : scans) {
+            if (scan.state() != Future.State.SUCCESS) {
+                Throwable cause = scan.exceptionNow();
+                throw cause instanceof BackendException
+                        ? (BackendException) cause
+                        : new BackendException("Utilization scan failed: " + cause.getMessage(), new RuntimeException(cause));
+            }
+            merged.add(scan.resultNow());
+        }
+        return new Report(dateFrom, days, merged);
+    }
+
+    // per-split accumulator; a split's rows arrive one page after another
+    private static class Totals implements Consumer<CarHistoryEntry> {
+        private final LocalDate dateFrom;
+        private final LocalDate dateTo;
+        private final LocalDate today;
+        private final int[] rentedDays;
+        private final int[] rentals;
+        private final int[] lateReturns;
+        private final int[] lateDays;
+        private final int[] stillOut;
+        private final int[] carsOutPerDay;
+
+        Totals(int carSlots, int days, LocalDate dateFrom, LocalDate dateTo, LocalDate today) {
+            this.dateFrom = dateFrom;
+            this.dateTo = dateTo;
+            this.today = today;
+            this.rentedDays = new int[carSlots];
+            this.rentals = new int[carSlots];
+            this.lateReturns = new int[carSlots];
+            this.lateDays = new int[carSlots];
+            this.stillOut = new int[carSlots];
+            this.carsOutPerDay = new int[days];
+        }
+
+        @Override
+        public void accept(CarHistoryEntry entry) {
+            int carId = entry.getCarId();
+            if (carId < 0 || carId >= rentedDays.length) return;
+
+            LocalDate returned = entry.getDateReceived();
+            LocalDate end = returned != null ? returned : today;
+            LocalDate first = entry.getDateFrom().isBefore(dateFrom) ? dateFrom : entry.getDateFrom();
+            LocalDate last = end.isAfter(dateTo) ? dateTo : end;
+            if (last.isBefore(first)) return;
+
+            int firstDay = (int) ChronoUnit.DAYS.between(dateFrom, first);
+            int lastDay = (int) ChronoUnit.DAYS.between(dateFrom, last);
+            for (int day = firstDay; day <= lastDay; day++) {
+                carsOutPerDay[day]++;
+            }
+            rentedDays[carId] += lastDay - firstDay + 1;
+            rentals[carId]++;
+            if (returned == null) {
+                stillOut[carId]++;
+            }
+            if (end.isAfter(entry.getDateTo())) {
+                lateReturns[carId]++;
+                lateDays[carId] += (int) ChronoUnit.DAYS.between(entry.getDateTo(), end);
+            }
+        }
+
+        void add(Totals other) {
+            for (int carId = 0; carId < rentedDays.length; carId++) {
+                rentedDays[carId] += other.rentedDays[carId];
+                rentals[carId] += other.rentals[carId];
+                lateReturns[carId] += other.lateReturns[carId];
+                lateDays[carId] += other.lateDays[carId];
+                stillOut[carId] += other.stillOut[carId];
+            }
+            for (int day = 0; day < carsOutPerDay.length; day++) {
+                carsOutPerDay[day] += other.carsOutPerDay[day];
+            }
+        }
+    }
+
+    public class Report {
+        private final LocalDate dateFrom;
+        private final int days;
+        private final Totals totals;
+
+        private Report(LocalDate dateFrom, int days, Totals totals) {
+            this.dateFrom = dateFrom;
+            this.days = days;
+            this.totals = totals;
+        }
+
+        public double getUtilization(int carId) {
+            return carId >= 0 && carId < totals.rentedDays.length ? (double) totals.rentedDays[carId] / days : 0.0;
+        }
+
+        public int getCarsOut(LocalDate date) {
+            int day = (int) ChronoUnit.DAYS.between(dateFrom, date);
+            return day >= 0 && day < days ? totals.carsOutPerDay[day] : 0;
+        }
+
+        public List<String> classLines() {
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format("%-5s %5s %8s %11s %10s %6s %13s %9s",
+                    "class", "cars", "rentals", "utilization", "idle days", "late", "avg late days", "still out"));
+            for (String carClass : Car.getCarClasses()) {
+                int[] carIds = fleet.carIds(carClass);
+                long rented = 0, rentals = 0, late = 0, lateDays = 0, out = 0;
+                for (int carId : carIds) {
+                    if (carId >= totals.rentedDays.length) continue;
+                    rented += totals.rentedDays[carId];
+                    rentals += totals.rentals[carId];
+                    late += totals.lateReturns[carId];
+                    lateDays += totals.lateDays[carId];
+                    out += totals.stillOut[carId];
+                }
+                long carDays = (long) carIds.length * days;
+                lines.add(String.format("%-5s %5d %8d %10.1f%% %10d %6d %13.1f %9d",
+                        carClass, carIds.length, rentals,
+                        carDays == 0 ? 0.0 : 100.0 * rented / carDays,
+                        carDays - rented, late,
+                        late == 0 ? 0.0 : (double) lateDays / late, out));
+            }
+            int peakDay = 0;
+            for (int day = 1; day < days; day++) {
+                if (totals.carsOutPerDay[day] > totals.carsOutPerDay[peakDay]) peakDay = day;
+            }
+            lines.add("busiest day: " + dateFrom.plusDays(peakDay) + " with " + totals.carsOutPerDay[peakDay]
+                    + " of " + fleet.carCount() + " cars out");
+            return lines;
+        }
+
+        public List<String> carLines() {
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format("%6s %-5s %8s %11s %10s %6s %9s", "carId", "class", "rentals", "utilization", "idle days", "late", "still out"));
+            for (String carClass : Car.getCarClasses()) {
+                for (int carId : fleet.carIds(carClass)) {
+                    // cars added to the fleet after the scan started
+                    if (carId >= totals.rentedDays.length) continue;
+                    lines.add(String.format("%6d %-5s %8d %10.1f%% %10d %6d %9d",
+                            carId, carClass, totals.rentals[carId], 100.0 * getUtilization(carId),
+                            days - totals.rentedDays[carId], totals.lateReturns[carId], totals.stillOut[carId]));
+                }
+            }
+            return lines;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package cassdemo.backend;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Local view of which cars are taken, one bit per carId. It is only a hint
+ * used to skip cars that would fail TRY_RENTING_CAR anyway; the LWT stays the
+ * source of truth. Rebuilt from carRentals and updated after every LWT and return.
+ */
+public class FreeCarMap {
+    private volatile AtomicLongArray taken = new AtomicLongArray(0);
+
+    public void reload(int maxCarId, int[] rentedCarIds) {
+        AtomicLongArray bits = new AtomicLongArray((maxCarId >> 6) + 1);
+        for (int carId : rentedCarIds) {
+            if (carId >= 0 && carId <= maxCarId) {
+                bits.getAndUpdate(carId >> 6, word -> word | 1L << carId);
+            }
+        }
+        taken = bits;
+    }
+
+    public boolean isTaken(int carId) {
+        AtomicLongArray bits = taken;
+        int word = carId >> 6;
+        return carId >= 0 && word < bits.length() && (bits.get(word) & 1L << carId) != 0;
+    }
+
+    public void markTaken(int carId) {
+        AtomicLongArray bits = taken;
+        int word = carId >> 6;
+        if (carId >= 0 && word < bits.length()) {
+            bits.getAndUpdate(word, w -> w | 1L << carId);
+        }
+    }
+
+    public void markFree(int carId) {
+        AtomicLongArray bits = taken;
+        int word = carId >> 6;
+        if (carId >= 0 && word < bits.length()) {
+            bits.getAndUpdate(word, w -> w & ~(1L << carId));
+        }
+    }
+}
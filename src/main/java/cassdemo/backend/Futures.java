@@ -0,0 +1,52 @@
+package cassdemo.backend;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+final class Futures {
+
+    private Futures() {
+    }
+
+    static CompletionException failure(String message, Throwable t) {
+        Throwable cause = unwrap(t);
+        if (cause instanceof BackendException) {
+            return new CompletionException(cause);
+        }
+        return new CompletionException(new BackendException(message + cause.getMessage(), asException(cause)));
+    }
+
+    static CompletableFuture<Void> allOf(List<? extends CompletionStage<?>> stages) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[stages.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = stages.get(i).toCompletableFuture();
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    static <T> T join(CompletionStage<T> stage) throws BackendException {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof BackendException) {
+                throw (BackendException) cause;
+            }
+            throw new BackendException("Request failed: " + cause.getMessage(), asException(cause));
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    private static Exception asException(Throwable t) {
+        return t instanceof Exception ? (Exception) t : new RuntimeException(t);
+    }
+}
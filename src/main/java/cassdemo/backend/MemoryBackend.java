@@ -0,0 +1,510 @@
+package cassdemo.backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/*
+ * Single-process StorageBackend for load testing and small single-node branches.
+ * Nothing is persisted. Counters live in 32-day pages of an AtomicLongArray,
+ * capacity slots and car rentals are claimed with compare-and-set, which gives
+ * the same guarantees as the LWTs in BackendSession.
+ */
+public class MemoryBackend implements StorageBackend {
+    private static final int MAX_CLASSES = 64;
+    private static final int PAGE_DAYS = 32;
+
+    private final Map<String, Integer> extraClasses = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLongArray> counterPages = new ConcurrentHashMap<>();
+    private final Map<Long, UUID> capacitySlots = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Integer>> slotsByShard = new ConcurrentHashMap<>();
+    private final Set<Long> seededDays = ConcurrentHashMap.newKeySet();
+    private final Map<RentalKey, Map<UUID, Reservation>> rentalLog = new ConcurrentHashMap<>();
+    private final Map<UUID, Map<UUID, RentalLog>> reservationsByRenter = new ConcurrentHashMap<>();
+    private final Map<Integer, ConcurrentSkipListMap<HistoryKey, HistoryEntry>> carHistory = new ConcurrentHashMap<>();
+    private final Map<Integer, Car> cars = new ConcurrentHashMap<>();
+    private volatile AtomicReferenceArray<UUID> carRentals = new AtomicReferenceArray<>(0);
+
+    public static MemoryBackend withFleet(String resource) throws BackendException {
+        MemoryBackend backend = new MemoryBackend();
+        try (InputStream stream = MemoryBackend.class.getClassLoader().getResourceAsStream(resource)) {
+            if (stream == null) throw new BackendException("Fleet resource not found: " + resource);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String[] fields = line.split(",");
+                backend.addCar(new Car(Integer.parseInt(fields[0].trim()), fields[1].trim(), fields[2].trim(), fields[3].trim()));
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new BackendException("Could not load fleet: " + e.getMessage(), e);
+        }
+        return backend;
+    }
+
+    // meant for loading the fleet before traffic starts
+    public synchronized void addCar(Car car) {
+        cars.put(car.getCarId(), car);
+        AtomicReferenceArray<UUID> rentals = carRentals;
+        if (car.getCarId() >= rentals.length()) {
+            AtomicReferenceArray<UUID> grown = new AtomicReferenceArray<>(car.getCarId() + 1);
+            for (int i = 0; i < rentals.length(); i++) {
+                grown.set(i, rentals.get(i));
+            }
+            carRentals = grown;
+        }
+    }
+
+    @Override
+    public long getAvailableCarCount(LocalDate date, String carClass) throws BackendException {
+        long count = readCounter(date.toEpochDay(), classIndex(carClass));
+        if (count == NO_DATA) throw new BackendException("No availability data. Run 'initialize'.");
+        return count;
+    }
+
+    @Override
+    public CompletionStage<Long> getAvailableCarCountAsync(LocalDate date, String carClass) {
+        try {
+            return CompletableFuture.completedFuture(getAvailableCarCount(date, carClass));
+        } catch (BackendException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public long[] getAvailableCarCounts(String carClass, LocalDate dateFrom, LocalDate dateTo) throws BackendException {
+        int classIndex = classIndex(carClass);
+        long firstDay = dateFrom.toEpochDay();
+        long[] counts = new long[(int) ChronoUnit.DAYS.between(dateFrom, dateTo) + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = readCounter(firstDay + i, classIndex);
+        }
+        return counts;
+    }
+
+    @Override
+    public CompletionStage<long[]> getAvailableCarCountsAsync(String carClass, LocalDate dateFrom, LocalDate dateTo) {
+        try {
+            return CompletableFuture.completedFuture(getAvailableCarCounts(carClass, dateFrom, dateTo));
+        } catch (BackendException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public long[] getAvailableCarCountsForDate(LocalDate date) {
+        long[] counts = new long[CarClass.COUNT];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = readCounter(date.toEpochDay(), i);
+        }
+        return counts;
+    }
+
+    @Override
+    public CompletionStage<long[]> getAvailableCarCountsForDateAsync(LocalDate date) {
+        return CompletableFuture.completedFuture(getAvailableCarCountsForDate(date));
+    }
+
+    // one store backs both views, so the two deltas always agree
+    @Override
+    public CompletionStage<Void> adjustAvailableCountAsync(LocalDate date, String carClass, long byDateDelta, long byClassDelta) {
+        if (byDateDelta != 0) {
+            updateAvailableCount(date, carClass, byDateDelta);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void updateAvailableCount(LocalDate date, String carClass, long delta) {
+        long day = date.toEpochDay();
+        AtomicLongArray page = counterPages.computeIfAbsent(Math.floorDiv(day, PAGE_DAYS), k -> newCounterPage());
+        page.getAndUpdate(counterSlot(day, classIndex(carClass)), count -> (count == NO_DATA ? 0 : count) + delta);
+    }
+
+    @Override
+    public CompletionStage<Void> updateAvailableCountAsync(LocalDate date, String carClass, long delta) {
+        updateAvailableCount(date, carClass, delta);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Void> updateAvailableCountsAsync(String carClass, LocalDate dateFrom, LocalDate dateTo, long delta) {
+        for (LocalDate date = dateFrom; !date.isAfter(dateTo); date = date.plusDays(1)) {
+            updateAvailableCount(date, carClass, delta);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<boolean[]> getSeededDaysAsync(String carClass, LocalDate dateFrom, LocalDate dateTo) {
+        boolean[] seeded = new boolean[(int) ChronoUnit.DAYS.between(dateFrom, dateTo) + 1];
+        for (int i = 0; i < seeded.length; i++) {
+            seeded[i] = seededDays.contains(classDayKey(carClass, dateFrom.plusDays(i)));
+        }
+        return CompletableFuture.completedFuture(seeded);
+    }
+
+    @Override
+    public CompletionStage<Boolean> markSeededAsync(String carClass, LocalDate date) {
+        return CompletableFuture.completedFuture(seededDays.add(classDayKey(carClass, date)));
+    }
+
+    @Override
+    public void insertRentalLog(LocalDate dateFrom, UUID renterId, UUID rentalId, LocalDate dateTo, String carClass, List<Integer> slots) {
+        RentalLog log = new RentalLog(dateFrom, renterId, rentalId, dateTo, carClass);
+        rentalLog.computeIfAbsent(new RentalKey(dateFrom, renterId), k -> new ConcurrentHashMap<>())
+                .put(rentalId, new Reservation(log, List.copyOf(slots)));
+        reservationsByRenter.computeIfAbsent(renterId, k -> new ConcurrentHashMap<>()).put(rentalId, log);
+    }
+
+    @Override
+    public CompletionStage<Void> insertRentalLogAsync(LocalDate dateFrom, UUID renterId, UUID rentalId, LocalDate dateTo, String carClass, List<Integer> slots) {
+        insertRentalLog(dateFrom, renterId, rentalId, dateTo, carClass, slots);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public List<RentalLog> selectRentals(LocalDate dateFrom, UUID renterId) {
+        Map<UUID, Reservation> partition = rentalLog.get(new RentalKey(dateFrom, renterId));
+        List<RentalLog> rentals = new ArrayList<>();
+        if (partition != null) {
+            for (Reservation reservation : partition.values()) {
+                rentals.add(reservation.log);
+            }
+        }
+        return rentals;
+    }
+
+    @Override
+    public CompletionStage<List<RentalLog>> selectRentalsAsync(LocalDate dateFrom, UUID renterId) {
+        return CompletableFuture.completedFuture(selectRentals(dateFrom, renterId));
+    }
+
+    @Override
+    public List<RentalLog> selectRenterReservations(UUID renterId, LocalDate dateFrom) {
+        Map<UUID, RentalLog> partition = reservationsByRenter.get(renterId);
+        List<RentalLog> reservations = new ArrayList<>();
+        if (partition != null) {
+            for (RentalLog log : partition.values()) {
+                if (!log.getDateFrom().isBefore(dateFrom)) {
+                    reservations.add(log);
+                }
+            }
+        }
+        reservations.sort(Comparator.comparing(RentalLog::getDateFrom));
+        return reservations;
+    }
+
+    @Override
+    public List<Integer> getReservationSlots(LocalDate dateFrom, UUID renterId, UUID rentalId) throws BackendException {
+        Map<UUID, Reservation> partition = rentalLog.get(new RentalKey(dateFrom, renterId));
+        Reservation reservation = partition != null ? partition.get(rentalId) : null;
+        if (reservation == null) throw new BackendException("Reservation not found");
+        return reservation.slots;
+    }
+
+    @Override
+    public CompletionStage<Void> streamRentals(LocalDate dateFrom, Consumer<RentalLog> sink) {
+        try {
+            for (Map.Entry<RentalKey, Map<UUID, Reservation>> partition : rentalLog.entrySet()) {
+                if (partition.getKey().dateFrom().equals(dateFrom)) {
+                    partition.getValue().values().forEach(reservation -> sink.accept(reservation.log));
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletionStage<Void> scanRentals(int split, int splits, Consumer<RentalLog> sink) {
+        try {
+            for (Map.Entry<RentalKey, Map<UUID, Reservation>> partition : rentalLog.entrySet()) {
+                if (Math.floorMod(partition.getKey().dateFrom().hashCode(), splits) == split) {
+                    partition.getValue().values().forEach(reservation -> sink.accept(reservation.log));
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletionStage<List<Integer>> getReservationSlotsAsync(LocalDate dateFrom, UUID renterId, UUID rentalId) {
+        try {
+            return CompletableFuture.completedFuture(getReservationSlots(dateFrom, renterId, rentalId));
+        } catch (BackendException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletionStage<Void> deleteReservationAsync(LocalDate dateFrom, UUID clientId, UUID rentalId) {
+        deleteReservation(dateFrom, clientId, rentalId);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void deleteReservation(LocalDate dateFrom, UUID clientId, UUID rentalId) {
+        Map<UUID, Reservation> partition = rentalLog.get(new RentalKey(dateFrom, clientId));
+        if (partition != null) {
+            partition.remove(rentalId);
+        }
+        Map<UUID, RentalLog> byRenter = reservationsByRenter.get(clientId);
+        if (byRenter != null) {
+            byRenter.remove(rentalId);
+        }
+    }
+
+    @Override
+    public CompletionStage<int[]> getClaimedSlotsAsync(String carClass, LocalDate date, int shard) {
+        Set<Integer> claimed = slotsByShard.get(shardKey(classDayKey(carClass, date), shard));
+        int[] slots = claimed == null ? new int[0] : claimed.stream().mapToInt(Integer::intValue).toArray();
+        return CompletableFuture.completedFuture(slots);
+    }
+
+    @Override
+    public CompletionStage<Boolean> claimSlotAsync(String carClass, LocalDate date, int shard, int slot, UUID rentalId) {
+        long classDay = classDayKey(carClass, date);
+        boolean applied = capacitySlots.putIfAbsent(slotKey(classDay, slot), rentalId) == null;
+        if (applied) {
+            slotsByShard.computeIfAbsent(shardKey(classDay, shard), k -> ConcurrentHashMap.newKeySet()).add(slot);
+        }
+        return CompletableFuture.completedFuture(applied);
+    }
+
+    @Override
+    public CompletionStage<Boolean> releaseSlotAsync(String carClass, LocalDate date, int shard, int slot, UUID rentalId) {
+        long classDay = classDayKey(carClass, date);
+        boolean applied = capacitySlots.remove(slotKey(classDay, slot), rentalId);
+        if (applied) {
+            Set<Integer> claimed = slotsByShard.get(shardKey(classDay, shard));
+            if (claimed != null) claimed.remove(slot);
+        }
+        return CompletableFuture.completedFuture(applied);
+    }
+
+    @Override
+    public CompletionStage<Void> deleteAvailableCountAsync(LocalDate date, String carClass) {
+        long day = date.toEpochDay();
+        AtomicLongArray page = counterPages.get(Math.floorDiv(day, PAGE_DAYS));
+        if (page != null) {
+            page.set(counterSlot(day, classIndex(carClass)), NO_DATA);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Void> deleteSlotsAsync(String carClass, LocalDate date, int shard) {
+        long classDay = classDayKey(carClass, date);
+        Set<Integer> claimed = slotsByShard.remove(shardKey(classDay, shard));
+        if (claimed != null) {
+            for (int slot : claimed) {
+                capacitySlots.remove(slotKey(classDay, slot));
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public int[] getRentedCarIds() {
+        AtomicReferenceArray<UUID> rentals = carRentals;
+        List<Integer> rented = new ArrayList<>();
+        for (int carId = 0; carId < rentals.length(); carId++) {
+            if (rentals.get(carId) != null) {
+                rented.add(carId);
+            }
+        }
+        return rented.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    public boolean tryAssignCar(int carId, UUID rentalId) {
+        AtomicReferenceArray<UUID> rentals = carRentals;
+        return carId >= 0 && carId < rentals.length() && rentals.compareAndSet(carId, null, rentalId);
+    }
+
+    @Override
+    public void addRentalToHistory(int carId, LocalDate dateFrom, LocalDate dateTo, UUID renterId, UUID rentalId) {
+        carHistory.computeIfAbsent(carId, k -> new ConcurrentSkipListMap<>())
+                .put(new HistoryKey(dateFrom, dateTo), new HistoryEntry(renterId, rentalId));
+    }
+
+    @Override
+    public void removeCarAssignment(int carId) {
+        AtomicReferenceArray<UUID> rentals = carRentals;
+        if (carId >= 0 && carId < rentals.length()) {
+            rentals.set(carId, null);
+        }
+    }
+
+    @Override
+    public void updateHistoryReturnDate(int carId, LocalDate dateFrom, LocalDate dateTo, LocalDate dateReceived) {
+        carHistory.computeIfAbsent(carId, k -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(new HistoryKey(dateFrom, dateTo), k -> new HistoryEntry(null, null))
+                .dateReceived = dateReceived;
+    }
+
+    @Override
+    public CompletionStage<Void> returnCarAsync(int carId, LocalDate dateFrom, LocalDate dateTo, LocalDate dateReceived) {
+        removeCarAssignment(carId);
+        updateHistoryReturnDate(carId, dateFrom, dateTo, dateReceived);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Void> streamCarHistory(int carId, Consumer<CarHistoryEntry> sink) {
+        ConcurrentSkipListMap<HistoryKey, HistoryEntry> history = carHistory.get(carId);
+        try {
+            if (history != null) {
+                history.forEach((key, entry) -> sink.accept(new CarHistoryEntry(
+                        carId, key.dateFrom(), key.dateTo(), entry.dateReceived, entry.renterId, entry.rentalId)));
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletionStage<Void> scanCarHistory(int split, int splits, Consumer<CarHistoryEntry> sink) {
+        for (Integer carId : carHistory.keySet()) {
+            if (Math.floorMod(carId.hashCode(), splits) == split) {
+                CompletionStage<Void> car = streamCarHistory(carId, sink);
+                if (car.toCompletableFuture().isCompletedExceptionally()) {
+                    return car;
+                }
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public List<Integer> getCarIdsByClass(String carClass) {
+        return getAllCarIdsByClass().getOrDefault(carClass, new ArrayList<>());
+    }
+
+    @Override
+    public Car getCarDetails(Integer carId) throws BackendException {
+        Car car = cars.get(carId);
+        if (car == null) throw new BackendException("Car not found");
+        return car;
+    }
+
+    @Override
+    public Map<String, List<Integer>> getAllCarIdsByClass() {
+        Map<String, List<Integer>> carIds = new HashMap<>();
+        for (Car car : cars.values()) {
+            carIds.computeIfAbsent(car.getCarClass(), k -> new ArrayList<>()).add(car.getCarId());
+        }
+        return carIds;
+    }
+
+    @Override
+    public List<Car> getAllCarDetails() {
+        return new ArrayList<>(cars.values());
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private long readCounter(long day, int classIndex) {
+        AtomicLongArray page = counterPages.get(Math.floorDiv(day, PAGE_DAYS));
+        return page == null ? NO_DATA : page.get(counterSlot(day, classIndex));
+    }
+
+    private static AtomicLongArray newCounterPage() {
+        AtomicLongArray page = new AtomicLongArray(PAGE_DAYS * MAX_CLASSES);
+        for (int i = 0; i < page.length(); i++) {
+            page.set(i, NO_DATA);
+        }
+        return page;
+    }
+
+    private static int counterSlot(long day, int classIndex) {
+        return (int) Math.floorMod(day, PAGE_DAYS) * MAX_CLASSES + classIndex;
+    }
+
+    // classes outside Car.getCarClasses(), such as the contention benchmark's, get the next free index
+    private int classIndex(String carClass) {
+        int index = CarClass.indexOf(carClass);
+        if (index >= 0) return index;
+        Integer extra = extraClasses.get(carClass);
+        return extra != null ? extra : registerClass(carClass);
+    }
+
+    private synchronized int registerClass(String carClass) {
+        Integer extra = extraClasses.get(carClass);
+        if (extra != null) return extra;
+        int index = CarClass.COUNT + extraClasses.size();
+        if (index >= MAX_CLASSES) throw new IllegalStateException("Too many car classes");
+        extraClasses.put(carClass, index);
+        return index;
+    }
+
+    private long classDayKey(String carClass, LocalDate date) {
+        return date.toEpochDay() * MAX_CLASSES + classIndex(carClass);
+    }
+
+    private static long slotKey(long classDay, int slot) {
+        return classDay << 24 | slot;
+    }
+
+    private static long shardKey(long classDay, int shard) {
+        return classDay << 16 | shard;
+    }
+
+    private record RentalKey(LocalDate dateFrom, UUID renterId) {
+    }
+
+    private record HistoryKey(LocalDate dateFrom, LocalDate dateTo) implements Comparable<HistoryKey> {
+        @Override
+        public int compareTo(HistoryKey other) {
+            int byFrom = dateFrom.compareTo(other.dateFrom);
+            return byFrom != 0 ? byFrom : dateTo.compareTo(other.dateTo);
+        }
+    }
+
+    private static class HistoryEntry {
+        private final UUID renterId;
+        private final UUID rentalId;
+        private volatile LocalDate dateReceived;
+
+        HistoryEntry(UUID renterId, UUID rentalId) {
+            this.renterId = renterId;
+            this.rentalId = rentalId;
+        }
+    }
+
+    private static class Reservation {
+        private final RentalLog log;
+        private final List<Integer> slots;
+
+        Reservation(RentalLog log, List<Integer> slots) {
+            this.log = log;
+            this.slots = slots;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package cassdemo.backend;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import cassdemo.backend.BackendSession.Query;
+
+/*
+ * Periodically logs the latencies seen since the previous report and, when a file
+ * is configured, appends them to a CSV. Counts of errors, timeouts and LWT outcomes
+ * in the CSV are cumulative so they can be diffed by whatever reads the file.
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsReporter.class);
+
+    private final QueryMetrics metrics;
+    private final PrintWriter csv;
+    private final ScheduledExecutorService scheduler;
+
+    public MetricsReporter(QueryMetrics metrics, int periodSeconds, String csvFile) throws BackendException {
+        this.metrics = metrics;
+        this.csv = csvFile == null || csvFile.isBlank() ? null : openCsv(Path.of(csvFile));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::report, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    private static PrintWriter openCsv(Path file) throws BackendException {
+        try {
+            boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+            PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), true);
+            if (fresh) {
+                writer.println("time,query,count,p50_ms,p99_ms,p999_ms,max_ms,errors,timeouts,lwt_applied,lwt_not_applied");
+            }
+            return writer;
+        } catch (IOException e) {
+            throw new BackendException("Could not open metrics file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    void report() {
+        try {
+            Instant now = Instant.now();
+            for (Map.Entry<Query, QueryStats> entry : metrics.all().entrySet()) {
+                QueryStats stats = entry.getValue();
+                Histogram interval = stats.intervalHistogram();
+                if (interval.getTotalCount() == 0) continue;
+
+                // microsecond values over 1000.0 print with at most three decimals
+                logger.info("{}: {} requests, p50={}ms p99={}ms max={}ms, errors={} timeouts={}",
+                        entry.getKey(), interval.getTotalCount(),
+                        interval.getValueAtPercentile(50.0) / 1000.0,
+                        interval.getValueAtPercentile(99.0) / 1000.0,
+                        interval.getMaxValue() / 1000.0,
+                        stats.getErrors(), stats.getTimeouts());
+                if (csv != null) {
+                    // Locale.ROOT keeps the decimal point a dot, the CSV separator stays unambiguous
+                    csv.println(String.format(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,%.3f,%.3f,%d,%d,%d,%d",
+                            now, entry.getKey(), interval.getTotalCount(),
+                            interval.getValueAtPercentile(50.0) / 1000.0,
+                            interval.getValueAtPercentile(99.0) / 1000.0,
+                            interval.getValueAtPercentile(99.9) / 1000.0,
+                            interval.getMaxValue() / 1000.0,
+                            stats.getErrors(), stats.getTimeouts(), stats.getLwtApplied(), stats.getLwtNotApplied()));
+                }
+            }
+        } catch (Exception e) {
+            // a failing report must not cancel the schedule
+            logger.warn("Metrics report failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        if (csv != null) {
+            csv.close();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package cassdemo.backend;
+
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
+import com.datastax.oss.driver.api.core.servererrors.ReadTimeoutException;
+import com.datastax.oss.driver.api.core.servererrors.WriteTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import cassdemo.backend.BackendSession.Query;
+
+/*
+ * Per-statement timings for BackendSession. Every Query gets its own QueryStats,
+ * which is also published over JMX so it can be watched from jconsole/VisualVM.
+ */
+public class QueryMetrics implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryMetrics.class);
+
+    private final EnumMap<Query, QueryStats> stats = new EnumMap<>(Query.class);
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    public QueryMetrics() {
+        for (Query query : Query.values()) {
+            stats.put(query, new QueryStats());
+        }
+    }
+
+    public void record(Query query, long elapsedNanos, Throwable error) {
+        QueryStats queryStats = stats.get(query);
+        queryStats.recordLatency(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+        if (error != null) {
+            queryStats.recordError(isTimeout(error));
+        }
+    }
+
+    public void recordApplied(Query query, boolean applied) {
+        stats.get(query).recordApplied(applied);
+    }
+
+    public QueryStats get(Query query) {
+        return stats.get(query);
+    }
+
+    public Map<Query, QueryStats> all() {
+        return stats;
+    }
+
+    public void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Map.Entry<Query, QueryStats> entry : stats.entrySet()) {
+            try {
+                ObjectName name = new ObjectName("cassdemo:type=QueryMetrics,query=" + entry.getKey().name());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(entry.getValue(), name);
+                    registered.add(name);
+                }
+            } catch (Exception e) {
+                logger.warn("Could not register query metrics for " + entry.getKey() + " in JMX", e);
+            }
+        }
+    }
+
+    // one line per query that has been executed at least once
+    public List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-38s %9s %8s %8s %8s %8s %8s %8s %9s",
+                "query", "count", "mean ms", "p99 ms", "max ms", "errors", "timeouts", "lwt ok", "lwt fail"));
+        for (Map.Entry<Query, QueryStats> entry : stats.entrySet()) {
+            QueryStats s = entry.getValue();
+            if (s.getCount() == 0) continue;
+            lines.add(String.format("%-38s %9d %8.2f %8.2f %8.2f %8d %8d %8d %9d",
+                    entry.getKey(), s.getCount(), s.getMeanMillis(), s.getP99Millis(), s.getMaxMillis(),
+                    s.getErrors(), s.getTimeouts(), s.getLwtApplied(), s.getLwtNotApplied()));
+        }
+        return lines;
+    }
+
+    static boolean isTimeout(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DriverTimeoutException
+                    || cause instanceof ReadTimeoutException
+                    || cause instanceof WriteTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (Exception e) {
+                logger.debug("Could not unregister " + name, e);
+            }
+        }
+        registered.clear();
+    }
+}
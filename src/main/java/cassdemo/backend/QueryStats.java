@@ -0,0 +1,94 @@
+package cassdemo.backend;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Latency and outcome counters for one Query. Latencies are kept in microseconds,
+ * once for the whole run and once per reporting interval.
+ */
+public class QueryStats implements QueryStatsMBean {
+
+    private final ConcurrentHistogram totalMicros = new ConcurrentHistogram(3);
+    private final Recorder intervalMicros = new Recorder(3);
+    private Histogram recycled;
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder lwtApplied = new LongAdder();
+    private final LongAdder lwtNotApplied = new LongAdder();
+
+    void recordLatency(long micros) {
+        totalMicros.recordValue(micros);
+        intervalMicros.recordValue(micros);
+    }
+
+    void recordError(boolean timeout) {
+        errors.increment();
+        if (timeout) {
+            timeouts.increment();
+        }
+    }
+
+    void recordApplied(boolean applied) {
+        (applied ? lwtApplied : lwtNotApplied).increment();
+    }
+
+    // latencies recorded since the previous call
+    synchronized Histogram intervalHistogram() {
+        recycled = intervalMicros.getIntervalHistogram(recycled);
+        return recycled;
+    }
+
+    @Override
+    public long getCount() {
+        return totalMicros.getTotalCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getLwtApplied() {
+        return lwtApplied.sum();
+    }
+
+    @Override
+    public long getLwtNotApplied() {
+        return lwtNotApplied.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return totalMicros.getMean() / 1000.0;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return totalMicros.getValueAtPercentile(50.0) / 1000.0;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return totalMicros.getValueAtPercentile(99.0) / 1000.0;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return totalMicros.getValueAtPercentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return totalMicros.getMaxValue() / 1000.0;
+    }
+}
@@ -0,0 +1,28 @@
+package cassdemo.backend;
+
+/*
+ * JMX view of one prepared statement, registered as
+ * cassdemo:type=QueryMetrics,query=<Query name>. Latencies are cumulative since startup.
+ */
+public interface QueryStatsMBean {
+
+    long getCount();
+
+    long getErrors();
+
+    long getTimeouts();
+
+    long getLwtApplied();
+
+    long getLwtNotApplied();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,27 @@
+package cassdemo.backend;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Hands out permits at a fixed rate shared by all calling threads.
+ * A rate of zero or less means no limit.
+ */
+public class RateLimiter {
+    private final long intervalNanos;
+    private final AtomicLong nextPermit = new AtomicLong(System.nanoTime());
+
+    public RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    public void acquire() throws InterruptedException {
+        if (intervalNanos == 0) return;
+        long now = System.nanoTime();
+        long permit = Math.max(now, nextPermit.getAndAccumulate(now, (next, t) -> Math.max(next, t) + intervalNanos));
+        long waitNanos = permit - now;
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
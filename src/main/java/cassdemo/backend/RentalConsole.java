@@ -7,10 +7,13 @@ import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.ParentCommand;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -24,17 +27,37 @@ import java.util.concurrent.Callable;
         RentalConsole.AddClient.class,
         RentalConsole.Reserve.class,
         RentalConsole.RentAll.class,
+        RentalConsole.RentBatch.class,
         RentalConsole.ReturnCar.class,
         RentalConsole.Initialize.class,
+        RentalConsole.Migrate.class,
         RentalConsole.DeleteReservation.class,
+        RentalConsole.MyReservations.class,
         RentalConsole.Classes.class,
+        RentalConsole.Calendar.class,
+        RentalConsole.Earliest.class,
+        RentalConsole.Export.class,
+        RentalConsole.Import.class,
+        RentalConsole.Utilization.class,
+        RentalConsole.Repair.class,
+        RentalConsole.Contention.class,
+        RentalConsole.RefreshFleet.class,
+        RentalConsole.Stats.class,
+        RentalConsole.Stress.class,
         CommandLine.HelpCommand.class
 })
 public class RentalConsole {
     private final RentalService service;
+    private final PrintWriter out;
 
     public RentalConsole(RentalService service) {
+        this(service, new PrintWriter(System.out, true));
+    }
+
+    // commands print to out, so a script run can give every worker its own buffer
+    public RentalConsole(RentalService service, PrintWriter out) {
         this.service = service;
+        this.out = out;
     }
 
     private static class CarClassConverter implements CommandLine.ITypeConverter<String> {
@@ -52,7 +75,7 @@ public class RentalConsole {
             // accept lowercase input too, but always store the canonical (uppercase) value
             normalized = normalized.toUpperCase();
 
-            if (!Car.getCarClasses().contains(normalized)) {
+            if (CarClass.indexOf(normalized) < 0) {
                 throw new CommandLine.TypeConversionException(
                         "Invalid carClass '" + value + "'. Allowed values: " + Car.getCarClasses()
                 );
@@ -62,6 +85,26 @@ public class RentalConsole {
         }
     }
 
+    private static LocalDate toDate(String value) {
+        try {
+            return LocalDate.parse(value, DateTimeFormatter.ISO_LOCAL_DATE);
+        } catch (DateTimeParseException e) {
+            throw new CommandLine.TypeConversionException(
+                    "Invalid date '" + value + "'. Expected format: yyyy-MM-dd (example: 2026-01-27)"
+            );
+        }
+    }
+
+    private static UUID toUuid(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new CommandLine.TypeConversionException(
+                    "Invalid UUID '" + value + "'. Expected format: xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx"
+            );
+        }
+    }
+
     private static String prettyParameterError(CommandLine.ParameterException ex) {
         Throwable cause = ex.getCause();
         if (cause instanceof CommandLine.TypeConversionException && cause.getMessage() != null && !cause.getMessage().isBlank()) {
@@ -99,29 +142,33 @@ public class RentalConsole {
                 .terminal(terminal)
                 .build();
 
+        CommandLine cmd = commandLine();
+
+        while (true) {
+            String line;
+            try {
+                line = reader.readLine("dist-rental> ");
+            } catch (Exception e) {
+                break;
+            }
+
+            if (line == null || line.equalsIgnoreCase("exit")) break;
+            if (line.trim().isEmpty()) continue;
+
+            cmd.execute(line.split("\\s+"));
+        }
+    }
+
+    CommandLine commandLine() {
         CommandLine cmd = new CommandLine(this);
+        cmd.setOut(out);
 
         cmd.setAbbreviatedSubcommandsAllowed(true);
+        cmd.setCaseInsensitiveEnumValuesAllowed(true);
 
-        cmd.registerConverter(LocalDate.class, value -> {
-            try {
-                return LocalDate.parse(value, DateTimeFormatter.ISO_LOCAL_DATE);
-            } catch (DateTimeParseException e) {
-                throw new CommandLine.TypeConversionException(
-                        "Invalid date '" + value + "'. Expected format: yyyy-MM-dd (example: 2026-01-27)"
-                );
-            }
-        });
+        cmd.registerConverter(LocalDate.class, RentalConsole::toDate);
 
-        cmd.registerConverter(UUID.class, value -> {
-            try {
-                return UUID.fromString(value);
-            } catch (IllegalArgumentException e) {
-                throw new CommandLine.TypeConversionException(
-                        "Invalid UUID '" + value + "'. Expected format: xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx"
-                );
-            }
-        });
+        cmd.registerConverter(UUID.class, RentalConsole::toUuid);
 
         cmd.registerConverter(int.class, value -> {
             try {
@@ -159,30 +206,19 @@ public class RentalConsole {
         });
 
         cmd.setExecutionExceptionHandler((ex, commandLine, parseResult) -> {
-            System.err.println("Error: " + ex.getMessage());
+            commandLine.getErr().println("Error: " + ex.getMessage());
             return commandLine.getCommandSpec().exitCodeOnExecutionException();
         });
-
-        while (true) {
-            String line;
-            try {
-                line = reader.readLine("dist-rental> ");
-            } catch (Exception e) {
-                break;
-            }
-
-            if (line == null || line.equalsIgnoreCase("exit")) break;
-            if (line.trim().isEmpty()) continue;
-
-            cmd.execute(line.split("\\s+"));
-        }
+        return cmd;
     }
 
     @Command(name = "addclient", description = "Register a new client")
     static class AddClient implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+
         @Override
         public Integer call() {
-            System.out.println("Your RenterId is: " + UUID.randomUUID());
+            parent.out.println("Your RenterId is: " + UUID.randomUUID());
             return 0;
         }
     }
@@ -198,7 +234,7 @@ public class RentalConsole {
         @Override
         public Integer call() throws Exception {
             UUID id = parent.service.reserveRental(from, clientId, to, carClass);
-            System.out.println("Reservation completed. RentalId: " + id);
+            parent.out.println("Reservation completed. RentalId: " + id);
             return 0;
         }
     }
@@ -212,7 +248,44 @@ public class RentalConsole {
         @Override
         public Integer call() throws Exception {
             List<Car> cars = parent.service.processRentalsForClient(date, clientId);
-            cars.forEach(c -> System.out.println("Rented: " + c));
+            cars.forEach(c -> parent.out.println("Rented: " + c));
+            return 0;
+        }
+    }
+
+    private static class RentalRequestConverter implements CommandLine.ITypeConverter<RentalRequest> {
+        @Override
+        public RentalRequest convert(String value) {
+            int separator = value.indexOf(':');
+            if (separator < 0) {
+                throw new CommandLine.TypeConversionException(
+                        "Invalid request '" + value + "'. Expected format: yyyy-MM-dd:renterId"
+                );
+            }
+            try {
+                return new RentalRequest(
+                        LocalDate.parse(value.substring(0, separator), DateTimeFormatter.ISO_LOCAL_DATE),
+                        UUID.fromString(value.substring(separator + 1)));
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                throw new CommandLine.TypeConversionException(
+                        "Invalid request '" + value + "'. Expected format: yyyy-MM-dd:renterId"
+                );
+            }
+        }
+    }
+
+    @Command(name = "rentbatch", description = "Process rentals for many clients at once")
+    static class RentBatch implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+        @Parameters(arity = "1..*", converter = RentalRequestConverter.class, paramLabel = "date:clientId")
+        List<RentalRequest> requests;
+
+        @Override
+        public Integer call() {
+            List<RentalOutcome> outcomes = parent.service.processRentalsBatch(requests);
+            outcomes.forEach(parent.out::println);
+            long rented = outcomes.stream().filter(RentalOutcome::isRented).count();
+            parent.out.println("Rented " + rented + " of " + outcomes.size() + " reservations.");
             return 0;
         }
     }
@@ -228,24 +301,51 @@ public class RentalConsole {
         @Override
         public Integer call() throws Exception {
             parent.service.returnCar(carId, dateOut, dateRet, dateExp);
-            System.out.println("Car returned successfully.");
+            parent.out.println("Car returned successfully.");
             return 0;
         }
     }
 
-    @Command(name = "deletereservation", description = "Return a car")
+    /*
+     * The short form finds the reservation through the renter index. Reservations
+     * made before the index existed are not in it and need the full form.
+     */
+    @Command(name = "deletereservation", description = "Cancel a reservation")
     static class DeleteReservation implements Callable<Integer> {
         @ParentCommand RentalConsole parent;
-        @Parameters(index = "0") LocalDate dateFrom;
-        @Parameters(index = "1") UUID clientId;
-        @Parameters(index = "2") UUID rentalId;
-        @Parameters(index = "3") LocalDate dateTo;
-        @Parameters(index = "4", converter = CarClassConverter.class) String carClass;
+        @Parameters(arity = "2..5", paramLabel = "<clientId> <rentalId> | <dateFrom> <clientId> <rentalId> <dateTo> <class>")
+        List<String> args;
+
+        @Override
+        public Integer call() throws Exception {
+            if (args.size() == 2) {
+                parent.service.deleteReservation(toUuid(args.get(0)), toUuid(args.get(1)));
+            } else if (args.size() == 5) {
+                parent.service.deleteReservation(toDate(args.get(0)), toUuid(args.get(1)), toUuid(args.get(2)),
+                        toDate(args.get(3)), new CarClassConverter().convert(args.get(4)));
+            } else {
+                throw new CommandLine.TypeConversionException(
+                        "Expected <clientId> <rentalId>, or <dateFrom> <clientId> <rentalId> <dateTo> <class>");
+            }
+            parent.out.println("Reservation cancelled.");
+            return 0;
+        }
+    }
+
+    @Command(name = "myreservations", description = "List a client's reservations that have not ended yet")
+    static class MyReservations implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+        @Parameters(index = "0") UUID clientId;
 
         @Override
         public Integer call() throws Exception {
-            parent.service.deleteReservation(dateFrom, clientId, rentalId, dateTo, carClass);
-            System.out.println("Car returned successfully.");
+            List<RentalLog> reservations = parent.service.getUpcomingReservations(clientId);
+            if (reservations.isEmpty()) {
+                parent.out.println("No upcoming reservations.");
+            }
+            for (RentalLog log : reservations) {
+                parent.out.println(log.getDateFrom() + " - " + log.getDateTo() + "  class " + log.getCarClass() + "  rentalId " + log.getRentalId());
+            }
             return 0;
         }
     }
@@ -253,11 +353,25 @@ public class RentalConsole {
     @Command(name = "initialize", description = "Initialize car availability")
     static class Initialize implements Callable<Integer> {
         @ParentCommand RentalConsole parent;
+        @Option(names = "--days", description = "Number of days from today to seed, default initialize_days") Integer days;
+
+        @Override
+        public Integer call() throws Exception {
+            int seeded = days != null ? parent.service.initializeDatabase(days) : parent.service.initializeDatabase();
+            parent.out.println("Available cars seeded for " + seeded + " class-days.");
+            return 0;
+        }
+    }
+
+    @Command(name = "migrate", description = "Adopt availability counters from a keyspace created before seededDays, run once before 'initialize'")
+    static class Migrate implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+        @Option(names = "--days", description = "Number of days from today to adopt, default initialize_days") Integer days;
 
         @Override
         public Integer call() throws Exception {
-            parent.service.initializeDatabase();
-            System.out.println("Available cars refilled.");
+            int migrated = days != null ? parent.service.migrateCounters(days) : parent.service.migrateCounters();
+            parent.out.println("Availability counters adopted for " + migrated + " class-days.");
             return 0;
         }
     }
@@ -268,12 +382,195 @@ public class RentalConsole {
         RentalConsole parent;
         @Parameters(index = "0")
         LocalDate date;
+        @Option(names = "--strict", description = "Read the counters instead of the local cache")
+        boolean strict;
 
         @Override
         public Integer call() throws Exception {
-            List<String> classes = parent.service.getAvailableCarClasses(date);
-            System.out.println("Available car classes for " + date + ":");
-            classes.forEach(System.out::println);
+            List<String> classes = parent.service.getAvailableCarClasses(date, strict);
+            parent.out.println("Available car classes for " + date + ":");
+            classes.forEach(parent.out::println);
+            return 0;
+        }
+    }
+
+    @Command(name = "calendar", description = "Show available cars per class for every day in a date range")
+    static class Calendar implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+        @Parameters(index = "0") LocalDate from;
+        @Parameters(index = "1") LocalDate to;
+
+        @Override
+        public Integer call() throws Exception {
+            parent.service.getAvailabilityCalendar(from, to).lines().forEach(parent.out::println);
+            return 0;
+        }
+    }
+
+    @Command(name = "earliest", description = "Find the earliest run of consecutive days with a free car of a class")
+    static class Earliest implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+        @Parameters(index = "0", converter = CarClassConverter.class) String carClass;
+        @Parameters(index = "1", description = "Number of consecutive days") int days;
+        @Option(names = "--from", description = "First day to consider, default today") LocalDate from;
+        @Option(names = "--to", description = "Last day to consider, default 30 days from today") LocalDate to;
+
+        @Override
+        public Integer call() throws Exception {
+            LocalDate dateFrom = from != null ? from : LocalDate.now();
+            LocalDate dateTo = to != null ? to : LocalDate.now().plusDays(30);
+            LocalDate start = parent.service.findEarliestAvailability(carClass, days, dateFrom, dateTo);
+            if (start == null) {
+                parent.out.println("No " + days + " consecutive days with class " + carClass + " available between " + dateFrom + " and " + dateTo);
+            } else {
+                parent.out.println("Class " + carClass + " is available from " + start + " to " + start.plusDays(days - 1));
+            }
+            return 0;
+        }
+    }
+
+    @Command(name = "export", description = "Export rentals (by start date) or car history to a CSV or NDJSON file")
+    static class Export implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+        @Parameters(index = "0", description = "rentals or history") String what;
+        @Parameters(index = "1") Path file;
+        @Option(names = "--from", description = "First start date, rentals only") LocalDate from;
+        @Option(names = "--to", description = "Last start date, rentals only") LocalDate to;
+        @Option(names = "--car", split = ",", description = "Car ids, history only; default the whole fleet") int[] carIds;
+        @Option(names = "--format", defaultValue = "CSV", description = "CSV or NDJSON") RentalExporter.Format format;
+
+        @Override
+        public Integer call() throws Exception {
+            long written;
+            switch (what.toLowerCase()) {
+                case "rentals" -> {
+                    if (from == null || to == null) {
+                        parent.out.println("Exporting rentals needs --from and --to.");
+                        return 1;
+                    }
+                    written = parent.service.exportRentals(from, to, file, format);
+                }
+                case "history" -> written = parent.service.exportCarHistory(carIds != null ? carIds : new int[0], file, format);
+                default -> {
+                    parent.out.println("Unknown export '" + what + "', expected rentals or history.");
+                    return 1;
+                }
+            }
+            parent.out.println("Exported " + written + " records to " + file);
+            return 0;
+        }
+    }
+
+    @Command(name = "import", description = "Import reservations from a CSV file of dateFrom,renterId,dateTo,carClass")
+    static class Import implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+        @Parameters(index = "0") Path file;
+        @Option(names = "--rejects", description = "File for rows that could not be imported, default <file>.rejects.csv") Path rejects;
+
+        @Override
+        public Integer call() throws Exception {
+            Path rejectFile = rejects != null ? rejects : file.resolveSibling(file.getFileName() + ".rejects.csv");
+            ReservationImporter.Report report = parent.service.importReservations(file, rejectFile);
+            parent.out.println(report);
+            if (report.getRejected() > 0) {
+                parent.out.println("Rejected rows written to " + rejectFile);
+            }
+            return 0;
+        }
+    }
+
+    @Command(name = "utilization", description = "Show fleet utilization, idle time and late returns from car history")
+    static class Utilization implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+        @Parameters(index = "0") LocalDate from;
+        @Parameters(index = "1") LocalDate to;
+        @Option(names = "--cars", description = "Also list every car") boolean cars;
+
+        @Override
+        public Integer call() throws Exception {
+            FleetUtilization.Report report = parent.service.getUtilization(from, to);
+            report.classLines().forEach(parent.out::println);
+            if (cars) {
+                report.carLines().forEach(parent.out::println);
+            }
+            return 0;
+        }
+    }
+
+    @Command(name = "repair", description = "Recompute availability counters from reservations and correct drift")
+    static class Repair implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+        @Option(names = "--from", description = "First day, default today") LocalDate from;
+        @Option(names = "--to", description = "Last day, default 30 days from today") LocalDate to;
+        @Option(names = "--dry-run", description = "Only report what would be corrected") boolean dryRun;
+        @Option(names = "--rate", defaultValue = "200", description = "Correcting writes per second, 0 for unlimited") double rate;
+
+        @Override
+        public Integer call() throws Exception {
+            LocalDate dateFrom = from != null ? from : LocalDate.now();
+            LocalDate dateTo = to != null ? to : LocalDate.now().plusDays(30);
+            CounterRepair.Report report = parent.service.repairCounters(dateFrom, dateTo, dryRun, rate);
+            report.getCorrections().forEach(parent.out::println);
+            parent.out.println(report.summary());
+            return 0;
+        }
+    }
+
+    @Command(name = "contention", description = "Compare oversells of counters and capacity slots under contention")
+    static class Contention implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+        @Option(names = "--threads", defaultValue = "32") int threads;
+        @Option(names = "--attempts", defaultValue = "500") int attempts;
+        @Option(names = "--capacity", defaultValue = "10") int capacity;
+
+        @Override
+        public Integer call() throws Exception {
+            List<ContentionBenchmark.Result> results = parent.service.benchmarkContention(threads, attempts, capacity);
+            results.forEach(parent.out::println);
+            return 0;
+        }
+    }
+
+    @Command(name = "refreshfleet", description = "Reload the cached car fleet")
+    static class RefreshFleet implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+
+        @Override
+        public Integer call() throws Exception {
+            int cars = parent.service.refreshFleet();
+            parent.out.println("Fleet reloaded: " + cars + " cars.");
+            return 0;
+        }
+    }
+
+    @Command(name = "stats", description = "Show car assignment and per-query statistics")
+    static class Stats implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+
+        @Override
+        public Integer call() {
+            parent.out.println("Assignment: " + parent.service.getAssignmentMetrics());
+            parent.out.println("Availability seeded through: " + parent.service.getAvailabilitySeededThrough());
+            parent.service.getQueryMetrics().ifPresent(metrics -> metrics.summary().forEach(parent.out::println));
+            return 0;
+        }
+    }
+
+    @Command(name = "stress", description = "Run a reserve/rentall/returncar load test")
+    static class Stress implements Callable<Integer> {
+        @ParentCommand RentalConsole parent;
+        @Option(names = "--renters", defaultValue = "50") int renters;
+        @Option(names = "--rate", defaultValue = "100", description = "Target cycles per second, 0 for unlimited") double rate;
+        @Option(names = "--duration", defaultValue = "30", description = "Seconds") int duration;
+        @Option(names = "--max-days", defaultValue = "3") int maxDays;
+
+        @Override
+        public Integer call() throws Exception {
+            parent.out.println("Running " + renters + " renters for " + duration + "s...");
+            try (RequestExecutor executor = new RequestExecutor(parent.service, parent.service.getConfig())) {
+                StressTest.Report report = new StressTest(parent.service, executor).run(renters, rate, duration, maxDays);
+                report.lines().forEach(parent.out::println);
+            }
             return 0;
         }
     }
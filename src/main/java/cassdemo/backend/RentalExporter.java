@@ -0,0 +1,152 @@
+package cassdemo.backend;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/*
+ * Writes rentalLog and carHistory to a file as CSV or newline-delimited JSON.
+ * Records are written as the pages arrive, one partition after another, so an
+ * export of years of history needs no more memory than a single page.
+ */
+public class RentalExporter {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private final StorageBackend session;
+    private final FleetIndex fleet;
+
+    public RentalExporter(StorageBackend session, FleetIndex fleet) {
+        this.session = session;
+        this.fleet = fleet;
+    }
+
+    // rentalLog rows with dateFrom in [dateFrom, dateTo]; returns the number written
+    public long exportRentals(LocalDate dateFrom, LocalDate dateTo, Path file, Format format) throws BackendException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            RecordSink<RentalLog> sink = new RecordSink<>(out, format, RentalExporter::rentalFields);
+            if (format == Format.CSV) {
+                sink.line("dateFrom,renterId,rentalId,dateTo,carClass");
+            }
+            for (LocalDate date = dateFrom; !date.isAfter(dateTo); date = date.plusDays(1)) {
+                Futures.join(session.streamRentals(date, sink));
+            }
+            return sink.written;
+        } catch (IOException | UncheckedIOException e) {
+            throw new BackendException("Export to " + file + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    // history of the given cars, or of the whole fleet when carIds is empty
+    public long exportCarHistory(int[] carIds, Path file, Format format) throws BackendException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            RecordSink<CarHistoryEntry> sink = new RecordSink<>(out, format, RentalExporter::historyFields);
+            if (format == Format.CSV) {
+                sink.line("carId,dateFrom,dateTo,dateReceived,renterId,rentalId");
+            }
+            if (carIds.length > 0) {
+                for (int carId : carIds) {
+                    Futures.join(session.streamCarHistory(carId, sink));
+                }
+            } else {
+                for (String carClass : Car.getCarClasses()) {
+                    for (int carId : fleet.carIds(carClass)) {
+                        Futures.join(session.streamCarHistory(carId, sink));
+                    }
+                }
+            }
+            return sink.written;
+        } catch (IOException | UncheckedIOException e) {
+            throw new BackendException("Export to " + file + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static String[][] rentalFields(RentalLog log) {
+        return new String[][]{
+                {"dateFrom", str(log.getDateFrom())},
+                {"renterId", str(log.getRenterId())},
+                {"rentalId", str(log.getRentalId())},
+                {"dateTo", str(log.getDateTo())},
+                {"carClass", log.getCarClass()}
+        };
+    }
+
+    private static String[][] historyFields(CarHistoryEntry entry) {
+        return new String[][]{
+                {"carId", Integer.toString(entry.getCarId())},
+                {"dateFrom", str(entry.getDateFrom())},
+                {"dateTo", str(entry.getDateTo())},
+                {"dateReceived", str(entry.getDateReceived())},
+                {"renterId", str(entry.getRenterId())},
+                {"rentalId", str(entry.getRentalId())}
+        };
+    }
+
+    private static String str(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static class RecordSink<T> implements Consumer<T> {
+        private final Writer out;
+        private final Function<T, String[][]> fields;
+        private final Format format;
+        private long written;
+
+        RecordSink(Writer out, Format format, Function<T, String[][]> fields) {
+            this.out = out;
+            this.format = format;
+            this.fields = fields;
+        }
+
+        // pages of one partition arrive one after another, never concurrently
+        @Override
+        public void accept(T record) {
+            String[][] values = fields.apply(record);
+            StringBuilder line = new StringBuilder();
+            if (format == Format.CSV) {
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) line.append(',');
+                    line.append(csv(values[i][1]));
+                }
+            } else {
+                line.append('{');
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) line.append(',');
+                    line.append('"').append(values[i][0]).append("\":");
+                    line.append(values[i][1] == null ? "null" : '"' + json(values[i][1]) + '"');
+                }
+                line.append('}');
+            }
+            line(line.toString());
+            written++;
+        }
+
+        void line(String text) {
+            try {
+                out.write(text);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static String csv(String value) {
+            if (value == null) return "";
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        private static String json(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"");
+        }
+    }
+}
@@ -11,11 +11,15 @@ public class RentalLog {
     private final String carClass;
 
     public RentalLog(Builder builder){
-        this.dateFrom = builder.dateFrom;
-        this.renterId = builder.renterId;
-        this.rentalId = builder.rentalId;
-        this.dateTo = builder.dateTo;
-        this.carClass = builder.carClass;
+        this(builder.dateFrom, builder.renterId, builder.rentalId, builder.dateTo, builder.carClass);
+    }
+
+    public RentalLog(LocalDate dateFrom, UUID renterId, UUID rentalId, LocalDate dateTo, String carClass) {
+        this.dateFrom = dateFrom;
+        this.renterId = renterId;
+        this.rentalId = rentalId;
+        this.dateTo = dateTo;
+        this.carClass = carClass;
     }
 
     public LocalDate getDateFrom() {
@@ -38,6 +42,7 @@ public class RentalLog {
         return rentalId;
     }
 
+    // only RentalLogMappingBenchmark still builds through here, to compare against the constructor
     public static class Builder {
         private LocalDate dateFrom;
         private UUID renterId;
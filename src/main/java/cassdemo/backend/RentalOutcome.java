@@ -0,0 +1,51 @@
+package cassdemo.backend;
+
+import java.util.UUID;
+
+public class RentalOutcome {
+    private final RentalRequest request;
+    private final UUID rentalId;
+    private final Car car;
+    private final String error;
+
+    private RentalOutcome(RentalRequest request, UUID rentalId, Car car, String error) {
+        this.request = request;
+        this.rentalId = rentalId;
+        this.car = car;
+        this.error = error;
+    }
+
+    public static RentalOutcome rented(RentalRequest request, UUID rentalId, Car car) {
+        return new RentalOutcome(request, rentalId, car, null);
+    }
+
+    public static RentalOutcome failed(RentalRequest request, UUID rentalId, String error) {
+        return new RentalOutcome(request, rentalId, null, error);
+    }
+
+    public RentalRequest getRequest() {
+        return request;
+    }
+
+    public UUID getRentalId() {
+        return rentalId;
+    }
+
+    public Car getCar() {
+        return car;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isRented() {
+        return car != null;
+    }
+
+    @Override
+    public String toString() {
+        String rental = rentalId != null ? " rentalId=" + rentalId : "";
+        return request + rental + (isRented() ? " rented " + car : " failed: " + error);
+    }
+}
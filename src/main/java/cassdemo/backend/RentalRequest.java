@@ -0,0 +1,27 @@
+package cassdemo.backend;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public class RentalRequest {
+    private final LocalDate date;
+    private final UUID renterId;
+
+    public RentalRequest(LocalDate date, UUID renterId) {
+        this.date = date;
+        this.renterId = renterId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public UUID getRenterId() {
+        return renterId;
+    }
+
+    @Override
+    public String toString() {
+        return date + ":" + renterId;
+    }
+}
@@ -0,0 +1,279 @@
+package cassdemo.backend;
+
+import com.datastax.oss.driver.api.core.AllNodesFailedException;
+import com.datastax.oss.driver.api.core.servererrors.OverloadedException;
+import com.datastax.oss.driver.api.core.servererrors.UnavailableException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Headless HTTP front end for kiosks and web frontends. Every exchange is
+ * dispatched on its own virtual thread and handed to a RequestExecutor, so the
+ * operation limits and backpressure are the same as for the stress test. The
+ * response is written when the operation's future completes, with a fixed
+ * length, which lets the JDK server keep the connection alive.
+ *
+ * Parameters come from the query string or a form-encoded body:
+ *   POST /reserve    dateFrom renterId dateTo carClass  -> {"rentalId":...}
+ *   POST /rentall    date renterId                      -> {"cars":[...]}
+ *   POST /returncar  carId dateFrom dateTo [dateReceived]
+ *   POST /delete     renterId rentalId [dateFrom dateTo carClass]
+ *   GET  /classes    date [strict]                      -> {"classes":[...]}
+ *
+ * Business errors (no cars left, unknown reservation) answer 409. Requests
+ * turned away by the RequestExecutor limits and storage failures such as
+ * timeouts or unavailable replicas answer 503 with Retry-After.
+ */
+public class RentalServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RentalServer.class);
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final RequestExecutor executor;
+    private final ExecutorService dispatcher = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer server;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    public RentalServer(RentalService service, Properties config) throws BackendException {
+        this.executor = new RequestExecutor(service, config);
+        int port = Integer.parseInt(config.getProperty("http_port", "8080"));
+        int backlog = Integer.parseInt(config.getProperty("http_backlog", "1024"));
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), backlog);
+        } catch (IOException e) {
+            executor.close();
+            throw new BackendException("Could not bind HTTP port " + port + ": " + e.getMessage(), e);
+        }
+        server.setExecutor(dispatcher);
+        route("/reserve", "POST", this::reserve);
+        route("/rentall", "POST", this::rentAll);
+        route("/returncar", "POST", this::returnCar);
+        route("/delete", "POST", this::delete);
+        route("/classes", "GET", this::classes);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Listening on {}", server.getAddress());
+    }
+
+    public void awaitShutdown() throws InterruptedException {
+        stopped.await();
+    }
+
+    private CompletableFuture<String> reserve(Map<String, String> params) {
+        return executor.reserveRental(date(params, "dateFrom"), uuid(params, "renterId"), date(params, "dateTo"), carClass(params))
+                .thenApply(rentalId -> "{\"rentalId\":\"" + rentalId + "\"}");
+    }
+
+    private CompletableFuture<String> rentAll(Map<String, String> params) {
+        return executor.processRentalsForClient(date(params, "date"), uuid(params, "renterId"))
+                .thenApply(cars -> {
+                    StringBuilder json = new StringBuilder("{\"cars\":[");
+                    for (int i = 0; i < cars.size(); i++) {
+                        Car car = cars.get(i);
+                        if (i > 0) json.append(',');
+                        json.append("{\"carId\":").append(car.getCarId())
+                                .append(",\"carName\":").append(string(car.getCarName()))
+                                .append(",\"carClass\":").append(string(car.getCarClass()))
+                                .append(",\"licensePlate\":").append(string(car.getLicensePlate()))
+                                .append('}');
+                    }
+                    return json.append("]}").toString();
+                });
+    }
+
+    private CompletableFuture<String> returnCar(Map<String, String> params) {
+        LocalDate dateReceived = params.containsKey("dateReceived") ? date(params, "dateReceived") : LocalDate.now();
+        return executor.returnCar(integer(params, "carId"), date(params, "dateFrom"), date(params, "dateTo"), dateReceived)
+                .thenApply(ignored -> "{}");
+    }
+
+    // without dateFrom the reservation is looked up in the renter index
+    private CompletableFuture<String> delete(Map<String, String> params) {
+        if (!params.containsKey("dateFrom")) {
+            return executor.deleteReservation(uuid(params, "renterId"), uuid(params, "rentalId"))
+                    .thenApply(ignored -> "{}");
+        }
+        return executor.deleteReservation(date(params, "dateFrom"), uuid(params, "renterId"), uuid(params, "rentalId"),
+                        date(params, "dateTo"), carClass(params))
+                .thenApply(ignored -> "{}");
+    }
+
+    private CompletableFuture<String> classes(Map<String, String> params) {
+        return executor.getAvailableCarClasses(date(params, "date"), Boolean.parseBoolean(params.get("strict")))
+                .thenApply(classes -> {
+                    StringBuilder json = new StringBuilder("{\"classes\":[");
+                    for (int i = 0; i < classes.size(); i++) {
+                        if (i > 0) json.append(',');
+                        json.append(string(classes.get(i)));
+                    }
+                    return json.append("]}").toString();
+                });
+    }
+
+    private void route(String path, String method, Endpoint endpoint) {
+        server.createContext(path, exchange -> {
+            if (!method.equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, error("Use " + method));
+                return;
+            }
+            CompletableFuture<String> result;
+            try {
+                result = endpoint.handle(parameters(exchange));
+            } catch (IOException | RuntimeException e) {
+                respond(exchange, 400, error(e.getMessage()));
+                return;
+            }
+            // the dispatcher thread returns here, the response goes out when the operation is done
+            result.whenComplete((body, failure) -> {
+                if (failure == null) {
+                    respond(exchange, 200, body);
+                } else {
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                    if (isUnavailable(cause)) {
+                        exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+                        respond(exchange, 503, error(cause.getMessage()));
+                    } else {
+                        respond(exchange, cause instanceof BackendException ? 409 : 500, error(cause.getMessage()));
+                    }
+                }
+            });
+        });
+    }
+
+    // overload and storage failures say nothing about the request itself, a retry can succeed
+    private static boolean isUnavailable(Throwable failure) {
+        if (failure instanceof BackendBusyException || QueryMetrics.isTimeout(failure)) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AllNodesFailedException
+                    || cause instanceof UnavailableException
+                    || cause instanceof OverloadedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream body = exchange.getRequestBody()) {
+            parseForm(new String(body.readAllBytes(), StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) return;
+        for (String pair : form.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8).trim());
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.sendResponseHeaders(status, bytes.length);
+            out.write(bytes);
+        } catch (IOException e) {
+            logger.debug("Client went away before the response was written: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("Missing parameter " + name);
+        return value;
+    }
+
+    private static LocalDate date(Map<String, String> params, String name) {
+        try {
+            return LocalDate.parse(required(params, name));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + name + ", expected yyyy-MM-dd");
+        }
+    }
+
+    private static UUID uuid(Map<String, String> params, String name) {
+        return UUID.fromString(required(params, name));
+    }
+
+    private static int integer(Map<String, String> params, String name) {
+        return Integer.parseInt(required(params, name));
+    }
+
+    private static String carClass(Map<String, String> params) {
+        String carClass = required(params, "carClass").toUpperCase();
+        if (CarClass.indexOf(carClass) < 0) {
+            throw new IllegalArgumentException("Invalid carClass '" + carClass + "'. Allowed values: " + Car.getCarClasses());
+        }
+        return carClass;
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + string(message) + "}";
+    }
+
+    private static String string(String value) {
+        if (value == null) return "null";
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+        dispatcher.close();
+        stopped.countDown();
+    }
+
+    private interface Endpoint {
+        CompletableFuture<String> handle(Map<String, String> params);
+    }
+}
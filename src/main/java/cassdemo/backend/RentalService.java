@@ -1,46 +1,131 @@
 package cassdemo.backend;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class RentalService implements AutoCloseable {
-    private final BackendSession session;
+    private static final Logger logger = LoggerFactory.getLogger(RentalService.class);
+    private static final int MAX_CALENDAR_DAYS = 366;
+    private static final int MAX_INITIALIZE_DAYS = 3660;
+    private static final int RESERVATION_WINDOW_DAYS = 30;
+
+    private final StorageBackend session;
+    private final SlotReservationEngine slotEngine;
+    private final FleetIndex fleet;
+    private final FreeCarMap freeCars = new FreeCarMap();
+    private final Lock resyncLock = new ReentrantLock();
+    private final long resyncMinIntervalNanos;
+    private long lastResyncAt;
+    private final AssignmentMetrics assignmentMetrics = new AssignmentMetrics();
+    private final int batchParallelism;
+    private final Properties config;
+    private final MetricsReporter metricsReporter;
+    private final AvailabilityCache availabilityCache;
+    private final AvailabilitySeeder seeder;
+    private final AvailabilityHorizon horizon;
 
     public RentalService(String contactPointIP, String keyspace) throws BackendException {
-        this.session = new BackendSession(contactPointIP, keyspace);
+        this(contactPointIP, keyspace, new Properties());
     }
 
-    public UUID reserveRental(LocalDate dateFrom, UUID renterId, LocalDate dateTo, String carClass) throws BackendException {
-        LocalDate now = LocalDate.now();
-        if (!dateTo.isAfter(dateFrom)) {
-            throw new BackendException("Return date must be after start date.");
-        }
-        if (dateFrom.isBefore(now) || dateTo.isAfter(now.plusDays(30))) {
-            throw new BackendException("Reservations are only allowed within a 30-day window from today.");
-        }
+    public RentalService(String contactPointIP, String keyspace, Properties config) throws BackendException {
+        this(new BackendSession(contactPointIP, keyspace, config), config);
+    }
 
-        long dayCount = ChronoUnit.DAYS.between(dateFrom, dateTo);
-        for (int i = 0; i <= dayCount; i++) {
-            LocalDate date = dateFrom.plusDays(i);
-            long available = session.getAvailableCarCount(date, carClass);
-            if (available <= 0) {
-                throw new BackendException("Not enough cars available in class " + carClass + " for date " + date);
-            }
+    // takes ownership of the session: it is closed with the service, or right away if construction fails
+    public RentalService(StorageBackend session, Properties config) throws BackendException {
+        this.session = session;
+        this.config = config;
+        FleetIndex fleet = null;
+        AvailabilityHorizon horizon = null;
+        try {
+            this.slotEngine = new SlotReservationEngine(session, Integer.parseInt(config.getProperty("slot_shards", "4")));
+            this.resyncMinIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(config.getProperty("free_car_resync_ms", "1000")));
+            // the timed fleet refresh also picks up cars returned through other processes
+            fleet = new FleetIndex(session, Long.parseLong(config.getProperty("fleet_refresh_seconds", "300")), this::resyncFreeCars);
+            this.fleet = fleet;
+            resyncFreeCars();
+            this.batchParallelism = Integer.parseInt(config.getProperty("batch_parallelism", "16"));
+            this.availabilityCache = new AvailabilityCache(
+                    Long.parseLong(config.getProperty("availability_cache_ttl_ms", "2000")),
+                    Integer.parseInt(config.getProperty("availability_cache_max_dates", "64")));
+            this.seeder = new AvailabilitySeeder(session, fleet, availabilityCache,
+                    Integer.parseInt(config.getProperty("seed_parallelism", "32")));
+            // a few days past the reservation window, so the day that rolls in at midnight is already there
+            horizon = new AvailabilityHorizon(seeder,
+                    Integer.parseInt(config.getProperty("horizon_days", "37")),
+                    Long.parseLong(config.getProperty("horizon_refresh_seconds", "0")));
+            this.horizon = horizon;
+
+            int reportSeconds = Integer.parseInt(config.getProperty("metrics_report_seconds", "0"));
+            Optional<QueryMetrics> queryMetrics = session.queryMetrics();
+            this.metricsReporter = reportSeconds > 0 && queryMetrics.isPresent()
+                    ? new MetricsReporter(queryMetrics.get(), reportSeconds, config.getProperty("metrics_csv_file"))
+                    : null;
+        } catch (BackendException | RuntimeException e) {
+            // the reporter is created last, so only the parts before it can be running
+            if (horizon != null) horizon.close();
+            if (fleet != null) fleet.close();
+            session.close();
+            throw e;
         }
+    }
+
+    public UUID reserveRental(LocalDate dateFrom, UUID renterId, LocalDate dateTo, String carClass) throws BackendException {
+        checkReservationDates(dateFrom, dateTo, LocalDate.now());
 
+        // capacity slots are the authoritative check; availableCars is only the browse view
         UUID rentalId = UUID.randomUUID();
-        session.insertRentalLog(dateFrom, renterId, rentalId, dateTo, carClass);
+        int[] slots = slotEngine.claimAll(rentalId, carClass, dateFrom, dateTo, fleet.capacity(carClass));
+
+        try {
+            session.insertRentalLog(dateFrom, renterId, rentalId, dateTo, carClass, toList(slots));
+        } catch (BackendException e) {
+            slotEngine.release(rentalId, carClass, dateFrom, slots);
+            throw e;
+        }
 
-        for (int i = 0; i <= dayCount; i++) {
-            session.updateAvailableCount(dateFrom.plusDays(i), carClass, -1L);
+        // the reservation stands once its row is written; a lost counter update is drift for 'repair'
+        try {
+            Futures.join(updateAvailableCountsAsync(carClass, dateFrom, dateTo, -1L));
+        } catch (BackendException e) {
+            logger.warn("Counters of class {} from {} to {} not updated for reservation {}, run 'repair': {}",
+                    carClass, dateFrom, dateTo, rentalId, e.getMessage());
         }
 
         return rentalId;
     }
 
+    // also applied by ReservationImporter, which passes one today for the whole file
+    static void checkReservationDates(LocalDate dateFrom, LocalDate dateTo, LocalDate today) throws BackendException {
+        if (!dateTo.isAfter(dateFrom)) {
+            throw new BackendException("Return date must be after start date.");
+        }
+        if (dateFrom.isBefore(today) || dateTo.isAfter(today.plusDays(RESERVATION_WINDOW_DAYS))) {
+            throw new BackendException("Reservations are only allowed within a " + RESERVATION_WINDOW_DAYS + "-day window from today.");
+        }
+    }
+
     public List<Car> processRentalsForClient(LocalDate date, UUID renterId) throws BackendException {
         List<RentalLog> rentals = session.selectRentals(date, renterId);
         List<Car> rentedCars = new ArrayList<>();
@@ -55,57 +140,384 @@ public class RentalService implements AutoCloseable {
         return rentedCars;
     }
 
+    // every reservation gets its own outcome, a failed one does not stop the rest of the batch
+    public List<RentalOutcome> processRentalsBatch(List<RentalRequest> requests) {
+        List<CompletableFuture<List<RentalLog>>> lookups = new ArrayList<>(requests.size());
+        for (RentalRequest request : requests) {
+            lookups.add(session.selectRentalsAsync(request.getDate(), request.getRenterId()).toCompletableFuture());
+        }
+
+        Semaphore permits = new Semaphore(batchParallelism);
+        List<Future<RentalOutcome>> assignments = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests.size(); i++) {
+                RentalRequest request = requests.get(i);
+                List<RentalLog> rentals;
+                try {
+                    rentals = Futures.join(lookups.get(i));
+                } catch (BackendException e) {
+                    assignments.add(CompletableFuture.completedFuture(RentalOutcome.failed(request, null, e.getMessage())));
+                    continue;
+                }
+                if (rentals.isEmpty()) {
+                    assignments.add(CompletableFuture.completedFuture(RentalOutcome.failed(request, null, "No reservations for this date.")));
+                }
+                for (RentalLog log : rentals) {
+                    assignments.add(executor.submit(() -> assignBounded(permits, request, log)));
+                }
+            }
+        }
+
+        List<RentalOutcome> outcomes = new ArrayList<>(assignments.size());
+        for (Future<RentalOutcome> assignment : assignments) {
+            outcomes.add(assignment.resultNow());
+        }
+        return outcomes;
+    }
+
+    private RentalOutcome assignBounded(Semaphore permits, RentalRequest request, RentalLog log) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return RentalOutcome.failed(request, log.getRentalId(), "Interrupted.");
+        }
+        try {
+            Car car = findAndAssignCar(log, request.getRenterId());
+            if (car == null) {
+                return RentalOutcome.failed(request, log.getRentalId(), "No cars available (including upgrades).");
+            }
+            return RentalOutcome.rented(request, log.getRentalId(), car);
+        } catch (BackendException | RuntimeException e) {
+            // a single bad reservation must not take the outcomes of the whole batch with it
+            return RentalOutcome.failed(request, log.getRentalId(), e.getMessage());
+        } finally {
+            permits.release();
+        }
+    }
+
     private Car findAndAssignCar(RentalLog log, UUID renterId) throws BackendException {
-        List<String> allClasses = Car.getCarClasses();
-        int startIndex = allClasses.indexOf(log.getCarClass());
-        List<String> candidateClasses = allClasses.subList(startIndex, allClasses.size());
-
-        for (String currentClass : candidateClasses) {
-            List<Integer> carIds = session.getCarIdsByClass(currentClass);
-            for (Integer carId : carIds) {
-                if (session.tryAssignCar(carId, renterId)) {
+        CarClass reserved = CarClass.parse(log.getCarClass());
+        if (reserved == null) {
+            throw new BackendException("Unknown car class " + log.getCarClass() + " in reservation " + log.getRentalId());
+        }
+
+        // the local map can miss returns made by other processes, so give up only after a fresh view
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass > 0 && resyncAfterMiss()) {
+                assignmentMetrics.recordResync();
+            }
+            for (CarClass currentClass = reserved; currentClass != null; currentClass = currentClass.upgrade()) {
+                Integer carId = tryAssignFromClass(currentClass, renterId);
+                if (carId != null) {
                     session.addRentalToHistory(carId, log.getDateFrom(), log.getDateTo(), renterId, log.getRentalId());
-                    return session.getCarDetails(carId);
+                    Car car = fleet.car(carId);
+                    return car != null ? car : session.getCarDetails(carId);
                 }
             }
         }
         return null;
     }
 
+    // concurrent operators start at different cars instead of all racing for the first one
+    private Integer tryAssignFromClass(CarClass carClass, UUID renterId) throws BackendException {
+        int[] carIds = fleet.carIds(carClass);
+        if (carIds.length == 0) return null;
+        int start = ThreadLocalRandom.current().nextInt(carIds.length);
+        for (int i = 0; i < carIds.length; i++) {
+            int carId = carIds[(start + i) % carIds.length];
+            if (freeCars.isTaken(carId)) {
+                assignmentMetrics.recordSkip();
+                continue;
+            }
+            boolean applied = session.tryAssignCar(carId, renterId);
+            assignmentMetrics.recordAttempt(applied);
+            freeCars.markTaken(carId);
+            if (applied) return carId;
+        }
+        return null;
+    }
+
+    /*
+     * A miss rescans carRentals at most once per free_car_resync_ms and never
+     * concurrently. Callers queued behind a running resync skip their own, the
+     * running one started after their miss. Returns whether this call resynced.
+     */
+    private boolean resyncAfterMiss() throws BackendException {
+        long missedAt = System.nanoTime();
+        resyncLock.lock();
+        try {
+            if (lastResyncAt - missedAt > 0 || System.nanoTime() - lastResyncAt < resyncMinIntervalNanos) {
+                return false;
+            }
+            reloadFreeCars();
+            return true;
+        } finally {
+            resyncLock.unlock();
+        }
+    }
+
+    private void resyncFreeCars() throws BackendException {
+        resyncLock.lock();
+        try {
+            reloadFreeCars();
+        } finally {
+            resyncLock.unlock();
+        }
+    }
+
+    private void reloadFreeCars() throws BackendException {
+        lastResyncAt = System.nanoTime();
+        freeCars.reload(fleet.maxCarId(), session.getRentedCarIds());
+    }
+
     public void returnCar(int carId, LocalDate dateFrom, LocalDate dateTo, LocalDate dateReceived) throws BackendException {
-        session.removeCarAssignment(carId);
-        session.updateHistoryReturnDate(carId, dateFrom, dateTo, dateReceived);
+        Futures.join(returnCarAsync(carId, dateFrom, dateTo, dateReceived));
+    }
+
+    public CompletionStage<Void> returnCarAsync(int carId, LocalDate dateFrom, LocalDate dateTo, LocalDate dateReceived) {
+        return session.returnCarAsync(carId, dateFrom, dateTo, dateReceived)
+                .thenRun(() -> freeCars.markFree(carId));
     }
 
     public void deleteReservation(LocalDate dateFrom, UUID clientId, UUID rentalId, LocalDate dateTo, String carClass) throws BackendException {
-        long dayCount = ChronoUnit.DAYS.between(dateFrom, dateTo);
-        for (int i = 0; i <= dayCount; i++) {
-            session.updateAvailableCount(dateFrom.plusDays(i), carClass, 1L);
+        Futures.join(deleteReservationAsync(dateFrom, clientId, rentalId, dateTo, carClass));
+    }
+
+    /*
+     * Read the slots and release them (all days at once), drop the rentalLog row,
+     * then give back the counter of each day whose slot this call released. A
+     * concurrent delete or a retry of the same reservation releases nothing, so
+     * counters are never given back twice. The row outlives a failed release so
+     * the delete can be retried; a failure after the release leaves counter drift
+     * for 'repair'. Reservations from before capacity slots have none to release
+     * and give back their whole range.
+     */
+    public CompletionStage<Void> deleteReservationAsync(LocalDate dateFrom, UUID clientId, UUID rentalId, LocalDate dateTo, String carClass) {
+        return session.getReservationSlotsAsync(dateFrom, clientId, rentalId)
+                .thenCompose(slots -> slots.isEmpty()
+                        ? CompletableFuture.completedFuture(allDays(dateFrom, dateTo))
+                        : slotEngine.releaseAsync(rentalId, carClass, dateFrom, toArray(slots)))
+                .thenCompose(released -> session.deleteReservationAsync(dateFrom, clientId, rentalId)
+                        .thenCompose(v -> returnCountsAsync(carClass, dateFrom, released)));
+    }
+
+    private static boolean[] allDays(LocalDate dateFrom, LocalDate dateTo) {
+        boolean[] days = new boolean[(int) ChronoUnit.DAYS.between(dateFrom, dateTo) + 1];
+        Arrays.fill(days, true);
+        return days;
+    }
+
+    // one counter update per run of released days, usually the whole range
+    private CompletionStage<Void> returnCountsAsync(String carClass, LocalDate dateFrom, boolean[] released) {
+        List<CompletionStage<Void>> updates = new ArrayList<>();
+        for (int start = 0; start < released.length; start++) {
+            if (!released[start]) continue;
+            int end = start;
+            while (end + 1 < released.length && released[end + 1]) end++;
+            updates.add(updateAvailableCountsAsync(carClass, dateFrom.plusDays(start), dateFrom.plusDays(end), 1L));
+            start = end;
         }
-        session.deleteReservation(dateFrom, clientId, rentalId, dateTo, carClass);
+        return Futures.allOf(updates);
     }
 
-    public void initializeDatabase() throws BackendException {
-        for (String carClass : Car.getCarClasses()) {
-            long count = session.getCarIdsByClass(carClass).size();
-            for (int i = 0; i < 30; i++) {
-                session.updateAvailableCount(LocalDate.now().plusDays(i), carClass, count);
+    // cancels a reservation knowing only who made it; the rest is read from the renter index
+    public void deleteReservation(UUID renterId, UUID rentalId) throws BackendException {
+        for (RentalLog log : getUpcomingReservations(renterId)) {
+            if (log.getRentalId().equals(rentalId)) {
+                deleteReservation(log.getDateFrom(), renterId, rentalId, log.getDateTo(), log.getCarClass());
+                return;
             }
         }
+        throw new BackendException("Reservation " + rentalId + " not found for renter " + renterId);
+    }
+
+    /*
+     * Reservations of the renter that have not ended yet, in start date order.
+     * None can start more than the reservation window before today and still
+     * be running, so one bounded read of the renter's partition finds them all.
+     */
+    public List<RentalLog> getUpcomingReservations(UUID renterId) throws BackendException {
+        LocalDate today = LocalDate.now();
+        List<RentalLog> upcoming = new ArrayList<>();
+        for (RentalLog log : session.selectRenterReservations(renterId, today.minusDays(RESERVATION_WINDOW_DAYS))) {
+            if (!log.getDateTo().isBefore(today)) {
+                upcoming.add(log);
+            }
+        }
+        return upcoming;
+    }
+
+    public int initializeDatabase() throws BackendException {
+        return initializeDatabase(Integer.parseInt(config.getProperty("initialize_days", "30")));
+    }
+
+    // seeds counters for the days from today not seeded yet; safe to run again, also concurrently
+    public int initializeDatabase(int days) throws BackendException {
+        if (days < 1 || days > MAX_INITIALIZE_DAYS) {
+            throw new BackendException("Number of days must be between 1 and " + MAX_INITIALIZE_DAYS + ".");
+        }
+        return seeder.seed(LocalDate.now(), days);
+    }
+
+    public int migrateCounters() throws BackendException {
+        return migrateCounters(Integer.parseInt(config.getProperty("initialize_days", "30")));
+    }
+
+    // adopts availableCars counters from before seededDays existed, see AvailabilitySeeder.migrate
+    public int migrateCounters(int days) throws BackendException {
+        if (days < 1 || days > MAX_INITIALIZE_DAYS) {
+            throw new BackendException("Number of days must be between 1 and " + MAX_INITIALIZE_DAYS + ".");
+        }
+        return seeder.migrate(LocalDate.now(), days);
+    }
+
+    private CompletionStage<Void> updateAvailableCountsAsync(String carClass, LocalDate dateFrom, LocalDate dateTo, long delta) {
+        return session.updateAvailableCountsAsync(carClass, dateFrom, dateTo, delta).thenRun(() -> {
+            for (LocalDate date = dateFrom; !date.isAfter(dateTo); date = date.plusDays(1)) {
+                availabilityCache.invalidate(date);
+            }
+        });
     }
 
     public List<String> getAvailableCarClasses(LocalDate date) throws BackendException {
-        List<String> availableClasses = new ArrayList<>();
-        for (String carClass : Car.getCarClasses()) {
-            if (session.getAvailableCarCount(date, carClass) > 0) {
-                availableClasses.add(carClass);
+        return getAvailableCarClasses(date, false);
+    }
+
+    public List<String> getAvailableCarClasses(LocalDate date, boolean strict) throws BackendException {
+        return CarClass.names(getAvailableClassMask(date, strict));
+    }
+
+    // CarClass mask of the classes with a car left; strict reads skip the cache and refresh it
+    public int getAvailableClassMask(LocalDate date, boolean strict) throws BackendException {
+        int mask = strict ? -1 : availabilityCache.availableMask(date);
+        if (mask >= 0) {
+            return mask;
+        }
+        long generation = availabilityCache.generation(date);
+        long[] counts = session.getAvailableCarCountsForDate(date);
+        mask = 0;
+        boolean seeded = false;
+        for (int i = 0; i < counts.length; i++) {
+            // NO_DATA is negative, so a class without a counter is never available
+            if (counts[i] > 0) {
+                mask |= 1 << i;
             }
+            seeded |= counts[i] != StorageBackend.NO_DATA;
+        }
+        if (!seeded) throw new BackendException("No availability data. Run 'initialize'.");
+        availabilityCache.put(date, counts, generation);
+        return mask;
+    }
+
+    public AvailabilityCalendar getAvailabilityCalendar(LocalDate dateFrom, LocalDate dateTo) throws BackendException {
+        if (dateTo.isBefore(dateFrom)) {
+            throw new BackendException("End date must not be before start date.");
+        }
+        if (ChronoUnit.DAYS.between(dateFrom, dateTo) >= MAX_CALENDAR_DAYS) {
+            throw new BackendException("Calendar range is limited to " + MAX_CALENDAR_DAYS + " days.");
+        }
+        return AvailabilityCalendar.load(session, dateFrom, dateTo);
+    }
+
+    // start of the first run of `days` consecutive days in [dateFrom, dateTo] with a free car of the class
+    public LocalDate findEarliestAvailability(String carClass, int days, LocalDate dateFrom, LocalDate dateTo) throws BackendException {
+        if (days < 1) {
+            throw new BackendException("Number of days must be positive.");
+        }
+        return getAvailabilityCalendar(dateFrom, dateTo).earliestFreeRun(carClass, days);
+    }
+
+    public long exportRentals(LocalDate dateFrom, LocalDate dateTo, Path file, RentalExporter.Format format) throws BackendException {
+        if (dateTo.isBefore(dateFrom)) {
+            throw new BackendException("End date must not be before start date.");
+        }
+        return new RentalExporter(session, fleet).exportRentals(dateFrom, dateTo, file, format);
+    }
+
+    public long exportCarHistory(int[] carIds, Path file, RentalExporter.Format format) throws BackendException {
+        return new RentalExporter(session, fleet).exportCarHistory(carIds, file, format);
+    }
+
+    // rejected rows go to rejectFile with the reason appended
+    public ReservationImporter.Report importReservations(Path file, Path rejectFile) throws BackendException {
+        ReservationImporter importer = new ReservationImporter(session, slotEngine, fleet, availabilityCache,
+                Integer.parseInt(config.getProperty("import_chunk_rows", "2000")),
+                Integer.parseInt(config.getProperty("import_parallelism", "64")));
+        return importer.importFile(file, rejectFile);
+    }
+
+    public FleetUtilization.Report getUtilization(LocalDate dateFrom, LocalDate dateTo) throws BackendException {
+        if (dateTo.isBefore(dateFrom)) {
+            throw new BackendException("End date must not be before start date.");
         }
-        return availableClasses;
+        return new FleetUtilization(session, fleet,
+                Integer.parseInt(config.getProperty("scan_splits", "64")),
+                Integer.parseInt(config.getProperty("scan_parallelism", "8")))
+                .compute(dateFrom, dateTo);
+    }
+
+    public CounterRepair.Report repairCounters(LocalDate dateFrom, LocalDate dateTo, boolean dryRun, double writesPerSecond) throws BackendException {
+        if (dateTo.isBefore(dateFrom)) {
+            throw new BackendException("End date must not be before start date.");
+        }
+        return new CounterRepair(session, fleet,
+                Integer.parseInt(config.getProperty("scan_splits", "64")),
+                Integer.parseInt(config.getProperty("scan_parallelism", "8")),
+                Long.parseLong(config.getProperty("repair_settle_ms", "5000")))
+                .run(dateFrom, dateTo, dryRun, writesPerSecond);
+    }
+
+    public int refreshFleet() throws BackendException {
+        fleet.refresh();
+        resyncFreeCars();
+        return fleet.carCount();
+    }
+
+    public int getFleetCapacity(String carClass) {
+        return fleet.capacity(carClass);
+    }
+
+    public Properties getConfig() {
+        return config;
+    }
+
+    public LocalDate getAvailabilitySeededThrough() {
+        return horizon.getSeededThrough();
+    }
+
+    public AssignmentMetrics getAssignmentMetrics() {
+        return assignmentMetrics;
+    }
+
+    public Optional<QueryMetrics> getQueryMetrics() {
+        return session.queryMetrics();
+    }
+
+    public List<ContentionBenchmark.Result> benchmarkContention(int threads, int attempts, int capacity) throws BackendException {
+        return new ContentionBenchmark(session, slotEngine).run(threads, attempts, capacity);
+    }
+
+    private static List<Integer> toList(int[] slots) {
+        List<Integer> list = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            list.add(slot);
+        }
+        return list;
+    }
+
+    // reservations made before capacity slots existed have none to release
+    private static int[] toArray(List<Integer> slots) {
+        return slots.stream().mapToInt(Integer::intValue).toArray();
     }
 
     @Override
     public void close() {
+        if (metricsReporter != null) {
+            metricsReporter.close();
+        }
+        horizon.close();
+        fleet.close();
         session.close();
     }
 }
@@ -0,0 +1,134 @@
+package cassdemo.backend;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs RentalService operations for many logical clients at once, each on its
+ * own virtual thread. Every operation type has its own concurrency limit, and
+ * all of them share one in-flight limit. When a permit cannot be had within
+ * executor_queue_timeout_ms the request is rejected, so callers see
+ * backpressure instead of an ever growing driver queue.
+ */
+public class RequestExecutor implements AutoCloseable {
+
+    public enum Operation {
+        RESERVE("limit_reserve"),
+        RENT("limit_rentall"),
+        RETURN("limit_returncar"),
+        DELETE("limit_delete"),
+        CLASSES("limit_classes");
+
+        public final String limitProperty;
+
+        Operation(String limitProperty) {
+            this.limitProperty = limitProperty;
+        }
+    }
+
+    private final RentalService service;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final EnumMap<Operation, Semaphore> limits = new EnumMap<>(Operation.class);
+    private final Semaphore inFlight;
+    private final long queueTimeoutMillis;
+
+    public RequestExecutor(RentalService service, Properties config) {
+        this.service = service;
+        for (Operation operation : Operation.values()) {
+            limits.put(operation, new Semaphore(Integer.parseInt(config.getProperty(operation.limitProperty, "64"))));
+        }
+        this.inFlight = new Semaphore(Integer.parseInt(config.getProperty("executor_max_in_flight", "256")));
+        this.queueTimeoutMillis = Long.parseLong(config.getProperty("executor_queue_timeout_ms", "2000"));
+    }
+
+    public CompletableFuture<UUID> reserveRental(LocalDate dateFrom, UUID renterId, LocalDate dateTo, String carClass) {
+        return submit(Operation.RESERVE, () -> service.reserveRental(dateFrom, renterId, dateTo, carClass));
+    }
+
+    public CompletableFuture<List<Car>> processRentalsForClient(LocalDate date, UUID renterId) {
+        return submit(Operation.RENT, () -> service.processRentalsForClient(date, renterId));
+    }
+
+    public CompletableFuture<Void> returnCar(int carId, LocalDate dateFrom, LocalDate dateTo, LocalDate dateReceived) {
+        return submit(Operation.RETURN, () -> {
+            service.returnCar(carId, dateFrom, dateTo, dateReceived);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteReservation(LocalDate dateFrom, UUID clientId, UUID rentalId, LocalDate dateTo, String carClass) {
+        return submit(Operation.DELETE, () -> {
+            service.deleteReservation(dateFrom, clientId, rentalId, dateTo, carClass);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<String>> getAvailableCarClasses(LocalDate date, boolean strict) {
+        return submit(Operation.CLASSES, () -> service.getAvailableCarClasses(date, strict));
+    }
+
+    public CompletableFuture<Void> deleteReservation(UUID renterId, UUID rentalId) {
+        return submit(Operation.DELETE, () -> {
+            service.deleteReservation(renterId, rentalId);
+            return null;
+        });
+    }
+
+    public int availablePermits(Operation operation) {
+        return limits.get(operation).availablePermits();
+    }
+
+    private <T> CompletableFuture<T> submit(Operation operation, ServiceCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            Semaphore limit = limits.get(operation);
+            if (!acquire(limit)) {
+                result.completeExceptionally(new BackendBusyException("Too many concurrent " + operation + " requests, try again later."));
+                return;
+            }
+            try {
+                if (!acquire(inFlight)) {
+                    result.completeExceptionally(new BackendBusyException("Backend is saturated, try again later."));
+                    return;
+                }
+                try {
+                    result.complete(call.call());
+                } catch (Throwable e) {
+                    // an Error (say an OutOfMemoryError) must fail the future too, or the caller waits forever
+                    result.completeExceptionally(e);
+                } finally {
+                    inFlight.release();
+                }
+            } finally {
+                limit.release();
+            }
+        });
+        return result;
+    }
+
+    private boolean acquire(Semaphore semaphore) {
+        try {
+            return semaphore.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private interface ServiceCall<T> {
+        T call() throws BackendException;
+    }
+}
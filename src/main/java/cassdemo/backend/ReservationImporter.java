@@ -0,0 +1,353 @@
+package cassdemo.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/*
+ * Imports partner bookings from a CSV file (dateFrom,renterId,dateTo,carClass).
+ * The file is read a chunk of rows at a time. For each chunk the free capacity
+ * slots of every (class, day) it touches are read once, rows are given slots in
+ * file order in memory, and only rows that fit send their LWT claims. The
+ * rentalLog rows are written next, then one counter update per (class, day)
+ * for the rows that made it; counters moving only after their rows is what
+ * lets 'repair' run alongside an import. Rows that do not fit go to the reject file with the reason
+ * appended, so it can be fixed up and imported again as it is.
+ */
+public class ReservationImporter {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationImporter.class);
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+
+    private final StorageBackend session;
+    private final SlotReservationEngine slotEngine;
+    private final FleetIndex fleet;
+    private final AvailabilityCache cache;
+    private final int chunkRows;
+    private final int parallelism;
+
+    public ReservationImporter(StorageBackend session, SlotReservationEngine slotEngine, FleetIndex fleet,
+                               AvailabilityCache cache, int chunkRows, int parallelism) {
+        this.session = session;
+        this.slotEngine = slotEngine;
+        this.fleet = fleet;
+        this.cache = cache;
+        this.chunkRows = Math.max(1, chunkRows);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public Report importFile(Path file, Path rejectFile) throws BackendException {
+        Report report = new Report();
+        long start = System.nanoTime();
+        try (BufferedReader in = new BufferedReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), READ_BUFFER_BYTES);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8)) {
+            rejects.write("dateFrom,renterId,dateTo,carClass,reason\n");
+            LocalDate today = LocalDate.now();
+            List<ImportRow> chunk = new ArrayList<>(chunkRows);
+            String line;
+            boolean first = true;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                // the header of the file, or of a reject file being imported again
+                if (first && line.startsWith("dateFrom")) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                report.rows++;
+                ImportRow row = new ImportRow(line);
+                String error = row.parse(today);
+                if (error != null) {
+                    reject(rejects, row, error, report);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkRows) {
+                    importChunk(chunk, rejects, report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, rejects, report);
+            }
+        } catch (IOException e) {
+            throw new BackendException("Import of " + file + " failed: " + e.getMessage(), e);
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private void importChunk(List<ImportRow> rows, BufferedWriter rejects, Report report) throws BackendException, IOException {
+        Semaphore permits = new Semaphore(parallelism);
+
+        // free slots of every (class, day) in the chunk, one read each
+        Map<ClassDay, CompletableFuture<int[]>> reads = new HashMap<>();
+        for (ImportRow row : rows) {
+            for (int i = 0; i < row.days; i++) {
+                ClassDay key = new ClassDay(row.carClass, row.dateFrom.plusDays(i));
+                if (!reads.containsKey(key)) {
+                    int capacity = fleet.capacity(row.carClass);
+                    reads.put(key, bounded(permits, () -> slotEngine.freeSlotsAsync(key.carClass, key.date, capacity)));
+                }
+            }
+        }
+        Futures.join(Futures.allOf(new ArrayList<>(reads.values())));
+
+        // hand out slots in file order; a row that does not fit takes nothing
+        Map<ClassDay, Integer> used = new HashMap<>();
+        List<ImportRow> fitting = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            String full = null;
+            for (int i = 0; i < row.days && full == null; i++) {
+                ClassDay key = new ClassDay(row.carClass, row.dateFrom.plusDays(i));
+                int[] free = reads.get(key).join();
+                int next = used.getOrDefault(key, 0);
+                if (next < free.length) {
+                    row.slots[i] = free[next];
+                } else {
+                    full = "Not enough cars available in class " + row.carClass + " for date " + key.date;
+                }
+            }
+            if (full != null) {
+                reject(rejects, row, full, report);
+                continue;
+            }
+            for (int i = 0; i < row.days; i++) {
+                used.merge(new ClassDay(row.carClass, row.dateFrom.plusDays(i)), 1, Integer::sum);
+            }
+            fitting.add(row);
+        }
+
+        // claims can still lose to reservations made since the read
+        List<List<CompletableFuture<Boolean>>> claims = new ArrayList<>(fitting.size());
+        for (ImportRow row : fitting) {
+            List<CompletableFuture<Boolean>> rowClaims = new ArrayList<>(row.days);
+            for (int i = 0; i < row.days; i++) {
+                int day = i;
+                rowClaims.add(bounded(permits, () -> slotEngine.claimSlotAsync(row.rentalId, row.carClass, row.dateFrom.plusDays(day), row.slots[day])));
+            }
+            claims.add(rowClaims);
+        }
+        CompletableFuture.allOf(claims.stream().flatMap(List::stream).toArray(CompletableFuture<?>[]::new))
+                .exceptionally(e -> null).join();
+
+        List<ImportRow> claimed = new ArrayList<>(fitting.size());
+        List<CompletionStage<boolean[]>> releases = new ArrayList<>();
+        for (int r = 0; r < fitting.size(); r++) {
+            ImportRow row = fitting.get(r);
+            String reason = claimFailure(claims.get(r));
+            if (reason == null) {
+                claimed.add(row);
+            } else {
+                releases.add(slotEngine.releaseAsync(row.rentalId, row.carClass, row.dateFrom, heldSlots(row, claims.get(r))));
+                reject(rejects, row, reason, report);
+            }
+        }
+
+        List<CompletableFuture<Void>> inserts = new ArrayList<>(claimed.size());
+        for (ImportRow row : claimed) {
+            inserts.add(bounded(permits, () -> session.insertRentalLogAsync(
+                    row.dateFrom, row.renterId, row.rentalId, row.dateTo, row.carClass, toList(row.slots))));
+        }
+        CompletableFuture.allOf(inserts.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+
+        // rows that could not be written give their slots back, the rest are counted once per (class, day)
+        Map<ClassDay, Long> deltas = new LinkedHashMap<>();
+        for (int r = 0; r < claimed.size(); r++) {
+            ImportRow row = claimed.get(r);
+            CompletableFuture<Void> insert = inserts.get(r);
+            if (insert.isCompletedExceptionally()) {
+                releases.add(slotEngine.releaseAsync(row.rentalId, row.carClass, row.dateFrom, row.slots));
+                reject(rejects, row, "Insert failed: " + errorMessage(insert), report);
+                continue;
+            }
+            for (int i = 0; i < row.days; i++) {
+                deltas.merge(new ClassDay(row.carClass, row.dateFrom.plusDays(i)), -1L, Long::sum);
+            }
+            report.imported++;
+        }
+        List<CompletableFuture<Void>> counters = new ArrayList<>(deltas.size());
+        for (Map.Entry<ClassDay, Long> delta : deltas.entrySet()) {
+            counters.add(adjustCounter(permits, delta.getKey(), delta.getValue(), report));
+        }
+        CompletableFuture.allOf(counters.toArray(new CompletableFuture<?>[0])).join();
+        Futures.allOf(releases).exceptionally(e -> {
+            logger.warn("Some capacity slots of rejected rows could not be released: {}", e.getMessage());
+            return null;
+        }).join();
+    }
+
+    // null when every day was claimed; a backend error is reported before a lost race
+    private static String claimFailure(List<CompletableFuture<Boolean>> rowClaims) {
+        boolean lost = false;
+        for (CompletableFuture<Boolean> claim : rowClaims) {
+            if (claim.isCompletedExceptionally()) {
+                return "Slot claim failed: " + errorMessage(claim);
+            }
+            lost |= !claim.join();
+        }
+        return lost ? "Capacity taken by a concurrent reservation" : null;
+    }
+
+    // slots that may be ours: claims that applied, and failed ones that may have applied before the error
+    private static int[] heldSlots(ImportRow row, List<CompletableFuture<Boolean>> rowClaims) {
+        int[] held = row.slots.clone();
+        for (int i = 0; i < held.length; i++) {
+            CompletableFuture<Boolean> claim = rowClaims.get(i);
+            if (!claim.isCompletedExceptionally() && !claim.join()) {
+                held[i] = SlotReservationEngine.NO_SLOT;
+            }
+        }
+        return held;
+    }
+
+    // a failed counter write leaves drift for 'repair' to fix, it does not undo the reservations
+    private CompletableFuture<Void> adjustCounter(Semaphore permits, ClassDay key, long delta, Report report) throws BackendException {
+        return bounded(permits, () -> session.adjustAvailableCountAsync(key.date, key.carClass, delta, delta))
+                .handle((v, e) -> {
+                    if (e == null) {
+                        cache.invalidate(key.date);
+                    } else {
+                        synchronized (report) {
+                            report.counterFailures++;
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    private <T> CompletableFuture<T> bounded(Semaphore permits, Supplier<CompletionStage<T>> request) throws BackendException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackendException("Interrupted while importing reservations.", e);
+        }
+        CompletableFuture<T> result;
+        try {
+            result = request.get().toCompletableFuture();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return result.whenComplete((v, e) -> permits.release());
+    }
+
+    private static void reject(BufferedWriter rejects, ImportRow row, String reason, Report report) throws IOException {
+        rejects.write(row.line);
+        rejects.write(',');
+        rejects.write('"' + reason.replace("\"", "\"\"") + '"');
+        rejects.write('\n');
+        report.rejected++;
+    }
+
+    private static String errorMessage(CompletableFuture<?> failed) {
+        try {
+            failed.join();
+            return "";
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return cause.getMessage();
+        }
+    }
+
+    private static List<Integer> toList(int[] slots) {
+        List<Integer> list = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            list.add(slot);
+        }
+        return list;
+    }
+
+    private record ClassDay(String carClass, LocalDate date) {
+    }
+
+    private static class ImportRow {
+        private final String line;
+        private final UUID rentalId = UUID.randomUUID();
+        private LocalDate dateFrom;
+        private UUID renterId;
+        private LocalDate dateTo;
+        private String carClass;
+        private int days;
+        private int[] slots;
+
+        ImportRow(String line) {
+            this.line = line;
+        }
+
+        // same date rules as RentalService.reserveRental; returns the reason for rejecting the row, or null
+        String parse(LocalDate today) {
+            String[] fields = line.split(",");
+            if (fields.length < 4) {
+                return "Expected dateFrom,renterId,dateTo,carClass";
+            }
+            try {
+                dateFrom = LocalDate.parse(fields[0].trim());
+                renterId = UUID.fromString(fields[1].trim());
+                dateTo = LocalDate.parse(fields[2].trim());
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                return "Invalid field: " + e.getMessage();
+            }
+            carClass = fields[3].trim().toUpperCase();
+            if (CarClass.indexOf(carClass) < 0) {
+                return "Invalid carClass '" + fields[3].trim() + "'. Allowed values: " + Car.getCarClasses();
+            }
+            try {
+                RentalService.checkReservationDates(dateFrom, dateTo, today);
+            } catch (BackendException e) {
+                return e.getMessage();
+            }
+            days = (int) ChronoUnit.DAYS.between(dateFrom, dateTo) + 1;
+            slots = new int[days];
+            return null;
+        }
+    }
+
+    public static class Report {
+        private long rows;
+        private long imported;
+        private long rejected;
+        private long counterFailures;
+        private long elapsedNanos;
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getCounterFailures() {
+            return counterFailures;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            String summary = String.format("rows=%d imported=%d rejected=%d in %.1fs (%.1f rows/s)",
+                    rows, imported, rejected, seconds, seconds > 0 ? rows / seconds : 0.0);
+            return counterFailures == 0 ? summary
+                    : summary + ", " + counterFailures + " counter updates failed, run 'repair'";
+        }
+    }
+}
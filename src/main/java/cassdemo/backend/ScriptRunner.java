@@ -0,0 +1,239 @@
+package cassdemo.backend;
+
+import picocli.CommandLine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/*
+ * Runs console commands from a file or a pipe without a terminal. Lines are
+ * spread over a fixed set of workers, each with its own command parser and
+ * output buffer. A renter command always goes to the worker of its renter
+ * (its first UUID), so one renter's reserve, rentall and delete keep their
+ * order while different renters run in parallel. returncar goes to the worker
+ * of its car and waits for every rentall before it, one of which may have
+ * handed the car out. Any other command is a barrier: it runs alone, after
+ * everything before it and before everything after it.
+ *
+ * Results are written in input order. At most WINDOW_PER_WORKER lines per
+ * worker are in flight, so a long replay needs no more memory than that.
+ */
+public class ScriptRunner {
+    private static final int WINDOW_PER_WORKER = 64;
+    private static final Task STOP = new Task(0, null, null);
+    private static final Set<String> RENTER_COMMANDS = Set.of("reserve", "rentall", "deletereservation", "myreservations");
+
+    private final RentalService service;
+    private final int parallelism;
+
+    public ScriptRunner(RentalService service, int parallelism) {
+        this.service = service;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public Report run(BufferedReader in, PrintWriter out) throws IOException {
+        List<Worker> workers = new ArrayList<>(parallelism);
+        ArrayDeque<Task> pending = new ArrayDeque<>();
+        Report report = new Report();
+        long start = System.nanoTime();
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < parallelism; i++) {
+                Worker worker = new Worker(service);
+                workers.add(worker);
+                threads.execute(worker);
+            }
+            Set<String> commands = workers.get(0).cmd.getSubcommands().keySet();
+            List<Task> rentals = new ArrayList<>();
+            try {
+                long lineNumber = 0;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lineNumber++;
+                    String trimmed = line.trim();
+                    if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+                    String[] args = trimmed.split("\\s+");
+                    String command = commandName(commands, args[0]);
+                    // Set.of rejects null lookups; an unknown command runs as a barrier and fails there
+                    Integer key = command == null ? null
+                            : RENTER_COMMANDS.contains(command) ? renterKey(args)
+                            : "returncar".equals(command) ? carKey(args)
+                            : null;
+
+                    if (key == null) {
+                        while (!pending.isEmpty()) {
+                            write(pending.poll(), out, report);
+                        }
+                        rentals.clear();
+                        Task barrier = new Task(lineNumber, args, null);
+                        workers.get(0).queue.add(barrier);
+                        write(barrier, out, report);
+                        continue;
+                    }
+
+                    CompletableFuture<Void> after = null;
+                    if ("returncar".equals(command)) {
+                        rentals.removeIf(rental -> rental.result.isDone());
+                        after = CompletableFuture.allOf(rentals.stream().map(rental -> rental.result).toArray(CompletableFuture<?>[]::new));
+                    }
+                    Task task = new Task(lineNumber, args, after);
+                    if ("rentall".equals(command)) {
+                        rentals.add(task);
+                    }
+                    pending.add(task);
+                    workers.get(Math.floorMod(key, parallelism)).queue.add(task);
+
+                    if (pending.size() >= parallelism * WINDOW_PER_WORKER) {
+                        write(pending.poll(), out, report);
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    write(pending.poll(), out, report);
+                }
+            } finally {
+                for (Worker worker : workers) {
+                    worker.queue.add(STOP);
+                }
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        out.println("# " + report);
+        out.flush();
+        return report;
+    }
+
+    private static void write(Task task, PrintWriter out, Report report) {
+        Result result = task.result.join();
+        out.println("> " + String.join(" ", task.args));
+        out.print(result.output);
+        report.lines++;
+        if (!result.ok) {
+            report.failed++;
+            out.println("# line " + task.lineNumber + " failed");
+        }
+    }
+
+    // the subcommand an argument selects, as an exact name or a unique abbreviation; null when there is none
+    private static String commandName(Set<String> commands, String arg) {
+        if (commands.contains(arg)) return arg;
+        String match = null;
+        for (String command : commands) {
+            if (command.startsWith(arg)) {
+                if (match != null) return null;
+                match = command;
+            }
+        }
+        return match;
+    }
+
+    // hash of the first UUID, the renter; null sends the line through as a barrier
+    private static Integer renterKey(String[] args) {
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].length() == 36 && args[i].charAt(8) == '-') {
+                try {
+                    return UUID.fromString(args[i]).hashCode();
+                } catch (IllegalArgumentException e) {
+                    // not a UUID after all
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Integer carKey(String[] args) {
+        try {
+            return args.length > 1 ? Integer.valueOf(args[1]) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static class Worker implements Runnable {
+        private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+        private final StringWriter output = new StringWriter();
+        private final StringWriter errors = new StringWriter();
+        private final CommandLine cmd;
+
+        Worker(RentalService service) {
+            this.cmd = new RentalConsole(service, new PrintWriter(output, true)).commandLine();
+            cmd.setErr(new PrintWriter(errors, true));
+        }
+
+        @Override
+        public void run() {
+            try {
+                Task task;
+                while ((task = queue.take()) != STOP) {
+                    if (task.after != null) {
+                        task.after.join();
+                    }
+                    output.getBuffer().setLength(0);
+                    errors.getBuffer().setLength(0);
+                    int exitCode;
+                    try {
+                        exitCode = cmd.execute(task.args);
+                    } catch (RuntimeException e) {
+                        errors.write("Error: " + e.getMessage() + "\n");
+                        exitCode = 1;
+                    }
+                    // parse errors are reported with exit code 0, so anything on the error stream counts as a failure
+                    boolean ok = exitCode == 0 && errors.getBuffer().isEmpty();
+                    task.result.complete(new Result(output.toString() + errors, ok));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Task {
+        private final long lineNumber;
+        private final String[] args;
+        // completes once the lines this one depends on have run; results never complete exceptionally
+        private final CompletableFuture<Void> after;
+        private final CompletableFuture<Result> result = new CompletableFuture<>();
+
+        Task(long lineNumber, String[] args, CompletableFuture<Void> after) {
+            this.lineNumber = lineNumber;
+            this.args = args;
+            this.after = after;
+        }
+    }
+
+    private record Result(String output, boolean ok) {
+    }
+
+    public static class Report {
+        private long lines;
+        private long failed;
+        private long elapsedNanos;
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format("lines=%d ok=%d failed=%d in %.1fs (%.1f lines/s)",
+                    lines, lines - failed, failed, seconds, seconds > 0 ? lines / seconds : 0.0);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package cassdemo.backend;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Daily capacity of a class is modelled as slots 0..capacity-1 in capacitySlots.
+ * A reservation claims one slot per day with an LWT, so two clients can never
+ * hold the same unit of capacity and a day can never be oversold. Slot i lives
+ * in shard i % shards, which spreads the Paxos rounds of a busy day over several
+ * partitions instead of serializing them on one.
+ */
+public class SlotReservationEngine {
+    public static final int NO_SLOT = -1;
+
+    private final StorageBackend session;
+    private final int shards;
+
+    public SlotReservationEngine(StorageBackend session, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("slot_shards must be at least 1");
+        }
+        this.session = session;
+        this.shards = shards;
+    }
+
+    /*
+     * Returns the slot claimed for each day of the range. When any day is full its
+     * entry is NO_SLOT and every slot claimed for the other days is released again.
+     * A claim that fails with an error may still have applied, so the slot it
+     * last tried is released too; releases only delete rows holding rentalId.
+     */
+    public int[] claim(UUID rentalId, String carClass, LocalDate dateFrom, LocalDate dateTo, int capacity) throws BackendException {
+        int days = (int) ChronoUnit.DAYS.between(dateFrom, dateTo) + 1;
+        List<CompletableFuture<Integer>> claims = new ArrayList<>(days);
+        int[] attempted = new int[days];
+        Arrays.fill(attempted, NO_SLOT);
+        for (int i = 0; i < days; i++) {
+            claims.add(claimDay(rentalId, carClass, dateFrom.plusDays(i), capacity, attempted, i).toCompletableFuture());
+        }
+
+        try {
+            Futures.join(Futures.allOf(claims));
+        } catch (BackendException e) {
+            int[] partial = new int[days];
+            for (int i = 0; i < days; i++) {
+                CompletableFuture<Integer> claim = claims.get(i);
+                partial[i] = claim.isCompletedExceptionally() ? attempted[i] : claim.join();
+            }
+            releaseQuietly(rentalId, carClass, dateFrom, partial);
+            throw e;
+        }
+
+        int[] slots = new int[days];
+        boolean full = false;
+        for (int i = 0; i < days; i++) {
+            slots[i] = claims.get(i).join();
+            full |= slots[i] == NO_SLOT;
+        }
+        if (full) {
+            releaseQuietly(rentalId, carClass, dateFrom, slots);
+        }
+        return slots;
+    }
+
+    // like claim, for callers that need every day: a full day is a CapacityExceededException
+    public int[] claimAll(UUID rentalId, String carClass, LocalDate dateFrom, LocalDate dateTo, int capacity) throws BackendException {
+        int[] slots = claim(rentalId, carClass, dateFrom, dateTo, capacity);
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == NO_SLOT) {
+                throw new CapacityExceededException(carClass, dateFrom.plusDays(i));
+            }
+        }
+        return slots;
+    }
+
+    public void release(UUID rentalId, String carClass, LocalDate dateFrom, int[] slots) throws BackendException {
+        Futures.join(releaseAsync(rentalId, carClass, dateFrom, slots));
+    }
+
+    // released[i] is true when this call freed the slot of day i; a slot no longer held by rentalId stays false
+    public CompletionStage<boolean[]> releaseAsync(UUID rentalId, String carClass, LocalDate dateFrom, int[] slots) {
+        boolean[] released = new boolean[slots.length];
+        List<CompletionStage<Void>> releases = new ArrayList<>();
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slots[i];
+            int day = i;
+            if (slot != NO_SLOT) {
+                releases.add(session.releaseSlotAsync(carClass, dateFrom.plusDays(i), shardOf(slot), slot, rentalId)
+                        .thenAccept(applied -> released[day] = applied));
+            }
+        }
+        return Futures.allOf(releases).thenApply(v -> released);
+    }
+
+    // drops every slot of the day whoever holds it; only for scratch days such as the contention benchmark's
+    public CompletionStage<Void> dropAsync(String carClass, LocalDate date) {
+        List<CompletionStage<Void>> deletes = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            deletes.add(session.deleteSlotsAsync(carClass, date, shard));
+        }
+        return Futures.allOf(deletes);
+    }
+
+    private void releaseQuietly(UUID rentalId, String carClass, LocalDate dateFrom, int[] slots) {
+        try {
+            release(rentalId, carClass, dateFrom, slots);
+        } catch (BackendException ignored) {
+            // already logged by the session; the slots stay claimed until repaired
+        }
+    }
+
+    // free slots of one day in ascending order, for callers that hand out many slots at once
+    public CompletionStage<int[]> freeSlotsAsync(String carClass, LocalDate date, int capacity) {
+        return takenSlotsAsync(carClass, date, capacity).thenApply(taken -> freeSlots(taken));
+    }
+
+    // claims a slot picked by the caller; false when someone else holds it
+    public CompletionStage<Boolean> claimSlotAsync(UUID rentalId, String carClass, LocalDate date, int slot) {
+        return session.claimSlotAsync(carClass, date, shardOf(slot), slot, rentalId);
+    }
+
+    // attempted[day] holds the slot of the latest LWT sent for the day
+    private CompletionStage<Integer> claimDay(UUID rentalId, String carClass, LocalDate date, int capacity, int[] attempted, int day) {
+        return takenSlotsAsync(carClass, date, capacity)
+                .thenCompose(taken -> tryClaim(rentalId, carClass, date, shuffledFreeSlots(taken), 0, attempted, day));
+    }
+
+    private CompletionStage<boolean[]> takenSlotsAsync(String carClass, LocalDate date, int capacity) {
+        List<CompletableFuture<int[]>> reads = new ArrayList<>();
+        for (int shard = 0; shard < Math.min(shards, capacity); shard++) {
+            reads.add(session.getClaimedSlotsAsync(carClass, date, shard).toCompletableFuture());
+        }
+        return Futures.allOf(reads).thenApply(v -> {
+            boolean[] taken = new boolean[capacity];
+            for (CompletableFuture<int[]> read : reads) {
+                for (int slot : read.join()) {
+                    if (slot < capacity) taken[slot] = true;
+                }
+            }
+            return taken;
+        });
+    }
+
+    private CompletionStage<Integer> tryClaim(UUID rentalId, String carClass, LocalDate date, int[] free, int next, int[] attempted, int day) {
+        if (next == free.length) {
+            return CompletableFuture.completedFuture(NO_SLOT);
+        }
+        int slot = free[next];
+        attempted[day] = slot;
+        return session.claimSlotAsync(carClass, date, shardOf(slot), slot, rentalId)
+                .thenCompose(applied -> applied
+                        ? CompletableFuture.completedFuture(slot)
+                        : tryClaim(rentalId, carClass, date, free, next + 1, attempted, day));
+    }
+
+    // concurrent clients start from different free slots, so most first attempts succeed
+    private static int[] shuffledFreeSlots(boolean[] taken) {
+        int[] free = freeSlots(taken);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = free.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = free[i];
+            free[i] = free[j];
+            free[j] = tmp;
+        }
+        return free;
+    }
+
+    private static int[] freeSlots(boolean[] taken) {
+        int count = 0;
+        for (boolean t : taken) {
+            if (!t) count++;
+        }
+        int[] free = new int[count];
+        for (int slot = 0, i = 0; slot < taken.length; slot++) {
+            if (!taken[slot]) free[i++] = slot;
+        }
+        return free;
+    }
+
+    private int shardOf(int slot) {
+        return slot % shards;
+    }
+}
@@ -0,0 +1,124 @@
+package cassdemo.backend;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/*
+ * Everything RentalService needs from storage. BackendSession implements it on
+ * Cassandra; the conditional methods (claimSlotAsync, releaseSlotAsync,
+ * markSeededAsync, tryAssignCar) must keep their compare-and-set semantics in any implementation.
+ */
+public interface StorageBackend extends AutoCloseable {
+
+    // range reads report days that were never initialized with this value
+    long NO_DATA = Long.MIN_VALUE;
+
+    long getAvailableCarCount(LocalDate date, String carClass) throws BackendException;
+
+    CompletionStage<Long> getAvailableCarCountAsync(LocalDate date, String carClass);
+
+    long[] getAvailableCarCounts(String carClass, LocalDate dateFrom, LocalDate dateTo) throws BackendException;
+
+    CompletionStage<long[]> getAvailableCarCountsAsync(String carClass, LocalDate dateFrom, LocalDate dateTo);
+
+    // one count per CarClass ordinal; classes without a counter on the date are NO_DATA
+    long[] getAvailableCarCountsForDate(LocalDate date) throws BackendException;
+
+    CompletionStage<long[]> getAvailableCarCountsForDateAsync(LocalDate date);
+
+    void updateAvailableCount(LocalDate date, String carClass, long delta) throws BackendException;
+
+    CompletionStage<Void> updateAvailableCountAsync(LocalDate date, String carClass, long delta);
+
+    // applies delta to every day from dateFrom to dateTo inclusive
+    CompletionStage<Void> updateAvailableCountsAsync(String carClass, LocalDate dateFrom, LocalDate dateTo, long delta);
+
+    // separate deltas for availableCars and availableCarsByClass, used to repair drift
+    CompletionStage<Void> adjustAvailableCountAsync(LocalDate date, String carClass, long byDateDelta, long byClassDelta);
+
+    // days from dateFrom to dateTo inclusive whose counters have been seeded
+    CompletionStage<boolean[]> getSeededDaysAsync(String carClass, LocalDate dateFrom, LocalDate dateTo);
+
+    // records that the day's counters are being seeded; true only for the first caller
+    CompletionStage<Boolean> markSeededAsync(String carClass, LocalDate date);
+
+    void insertRentalLog(LocalDate dateFrom, UUID renterId, UUID rentalId, LocalDate dateTo, String carClass, List<Integer> slots) throws BackendException;
+
+    CompletionStage<Void> insertRentalLogAsync(LocalDate dateFrom, UUID renterId, UUID rentalId, LocalDate dateTo, String carClass, List<Integer> slots);
+
+    List<RentalLog> selectRentals(LocalDate dateFrom, UUID renterId) throws BackendException;
+
+    CompletionStage<List<RentalLog>> selectRentalsAsync(LocalDate dateFrom, UUID renterId);
+
+    // the renter's reservations starting on or after dateFrom, in start date order
+    List<RentalLog> selectRenterReservations(UUID renterId, LocalDate dateFrom) throws BackendException;
+
+    // hands every reservation starting on dateFrom to the sink, a page at a time
+    CompletionStage<Void> streamRentals(LocalDate dateFrom, Consumer<RentalLog> sink);
+
+    // like scanCarHistory, over rentalLog
+    CompletionStage<Void> scanRentals(int split, int splits, Consumer<RentalLog> sink);
+
+    List<Integer> getReservationSlots(LocalDate dateFrom, UUID renterId, UUID rentalId) throws BackendException;
+
+    CompletionStage<List<Integer>> getReservationSlotsAsync(LocalDate dateFrom, UUID renterId, UUID rentalId);
+
+    void deleteReservation(LocalDate dateFrom, UUID clientId, UUID rentalId) throws BackendException;
+
+    CompletionStage<Void> deleteReservationAsync(LocalDate dateFrom, UUID clientId, UUID rentalId);
+
+    CompletionStage<int[]> getClaimedSlotsAsync(String carClass, LocalDate date, int shard);
+
+    CompletionStage<Boolean> claimSlotAsync(String carClass, LocalDate date, int shard, int slot, UUID rentalId);
+
+    CompletionStage<Boolean> releaseSlotAsync(String carClass, LocalDate date, int shard, int slot, UUID rentalId);
+
+    // scratch data only: drops both counters of the day, and Cassandra counters cannot be reused once deleted
+    CompletionStage<Void> deleteAvailableCountAsync(LocalDate date, String carClass);
+
+    // scratch data only: drops every slot of the shard, whoever holds it
+    CompletionStage<Void> deleteSlotsAsync(String carClass, LocalDate date, int shard);
+
+    int[] getRentedCarIds() throws BackendException;
+
+    boolean tryAssignCar(int carId, UUID rentalId) throws BackendException;
+
+    void addRentalToHistory(int carId, LocalDate dateFrom, LocalDate dateTo, UUID renterId, UUID rentalId) throws BackendException;
+
+    void removeCarAssignment(int carId) throws BackendException;
+
+    void updateHistoryReturnDate(int carId, LocalDate dateFrom, LocalDate dateTo, LocalDate dateReceived) throws BackendException;
+
+    // removeCarAssignment and updateHistoryReturnDate in one write
+    CompletionStage<Void> returnCarAsync(int carId, LocalDate dateFrom, LocalDate dateTo, LocalDate dateReceived);
+
+    // hands every carHistory entry of the car to the sink, oldest first
+    CompletionStage<Void> streamCarHistory(int carId, Consumer<CarHistoryEntry> sink);
+
+    /*
+     * Hands the carHistory entries of one of `splits` disjoint slices of the table
+     * to the sink. Scanning every split from 0 to splits - 1 covers each row once.
+     */
+    CompletionStage<Void> scanCarHistory(int split, int splits, Consumer<CarHistoryEntry> sink);
+
+    List<Integer> getCarIdsByClass(String carClass) throws BackendException;
+
+    Car getCarDetails(Integer carId) throws BackendException;
+
+    Map<String, List<Integer>> getAllCarIdsByClass() throws BackendException;
+
+    List<Car> getAllCarDetails() throws BackendException;
+
+    @Override
+    void close();
+
+    // per-statement timings, for backends that collect them
+    default Optional<QueryMetrics> queryMetrics() {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,219 @@
+package cassdemo.backend;
+
+import org.HdrHistogram.ConcurrentHistogram;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+ * Simulates renters going through reserve -> rentall -> returncar cycles at a
+ * target rate. Each cycle uses a fresh renter id and cancels its reservation at
+ * the end, so capacity is handed back and the run can go on for any duration.
+ *
+ * Consistency is checked on the client side: live reservations per (class, day)
+ * must never exceed the fleet capacity of the class, and a car must never be
+ * handed to two renters at once.
+ */
+public class StressTest {
+
+    public enum Operation {
+        RESERVE, RENTALL, RETURNCAR, DELETE
+    }
+
+    private static final int WINDOW_DAYS = 30;
+
+    private final RentalService service;
+    private final RequestExecutor executor;
+    private final EnumMap<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final AtomicLongArray liveBookings;
+    private final Map<Integer, CarHolder> carHolders = new ConcurrentHashMap<>();
+    private final LongAdder cycles = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder oversells = new LongAdder();
+    private final LongAdder doubleAssignments = new LongAdder();
+
+    public StressTest(RentalService service, RequestExecutor executor) {
+        this.service = service;
+        this.executor = executor;
+        this.liveBookings = new AtomicLongArray(Car.getCarClasses().size() * (WINDOW_DAYS + 1));
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public Report run(int renters, double cyclesPerSecond, int durationSeconds, int maxDays) throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(cyclesPerSecond);
+        LocalDate today = LocalDate.now();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long start = System.nanoTime();
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int r = 0; r < renters; r++) {
+                threads.execute(() -> {
+                    try {
+                        while (System.nanoTime() < deadline) {
+                            limiter.acquire();
+                            runCycle(today, Math.max(1, Math.min(maxDays, WINDOW_DAYS)));
+                            cycles.increment();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        }
+        return new Report(System.nanoTime() - start);
+    }
+
+    private void runCycle(LocalDate today, int maxDays) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> carClasses = Car.getCarClasses();
+        int classIndex = random.nextInt(carClasses.size());
+        String carClass = carClasses.get(classIndex);
+        int days = random.nextInt(1, maxDays + 1);
+        int offset = random.nextInt(0, WINDOW_DAYS - days + 1);
+        LocalDate dateFrom = today.plusDays(offset);
+        LocalDate dateTo = dateFrom.plusDays(days);
+        UUID renterId = UUID.randomUUID();
+
+        UUID rentalId = timed(Operation.RESERVE, () -> executor.reserveRental(dateFrom, renterId, dateTo, carClass));
+        if (rentalId == null) return;
+        book(classIndex, offset, days, 1);
+
+        List<Car> cars = timed(Operation.RENTALL, () -> executor.processRentalsForClient(dateFrom, renterId));
+        if (cars != null) {
+            List<CarHolder> held = new ArrayList<>(cars.size());
+            for (Car car : cars) {
+                held.add(takeCar(car.getCarId(), renterId));
+            }
+            for (CarHolder holder : held) {
+                holder.returning = true;
+                timed(Operation.RETURNCAR, () -> executor.returnCar(holder.carId, dateFrom, dateTo, today));
+                carHolders.remove(holder.carId, holder);
+            }
+        }
+
+        // counted down before the slots are released, so the local tally never runs ahead of the store
+        book(classIndex, offset, days, -1);
+        timed(Operation.DELETE, () -> executor.deleteReservation(dateFrom, renterId, rentalId, dateTo, carClass));
+    }
+
+    // a car may only change hands once its previous holder has started returning it
+    private CarHolder takeCar(int carId, UUID renterId) {
+        CarHolder holder = new CarHolder(carId, renterId);
+        CarHolder previous = carHolders.put(carId, holder);
+        if (previous != null && !previous.returning) {
+            doubleAssignments.increment();
+        }
+        return holder;
+    }
+
+    private void book(int classIndex, int offset, int days, int delta) {
+        int capacity = service.getFleetCapacity(Car.getCarClasses().get(classIndex));
+        for (int day = offset; day <= offset + days; day++) {
+            long live = liveBookings.addAndGet(classIndex * (WINDOW_DAYS + 1) + day, delta);
+            if (delta > 0 && live > capacity) {
+                oversells.increment();
+            }
+        }
+    }
+
+    private <T> T timed(Operation operation, Supplier<CompletableFuture<T>> request) {
+        long start = System.nanoTime();
+        OperationStats operationStats = stats.get(operation);
+        try {
+            T result = request.get().join();
+            operationStats.latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            return result;
+        } catch (Exception e) {
+            operationStats.latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            if (QueryMetrics.isTimeout(e)) {
+                operationStats.timeouts.increment();
+            } else if (operation == Operation.RESERVE && isCapacityRejection(e)) {
+                rejected.increment();
+            } else {
+                operationStats.errors.increment();
+            }
+            return null;
+        }
+    }
+
+    private static boolean isCapacityRejection(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CapacityExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class CarHolder {
+        private final int carId;
+        private final UUID renterId;
+        private volatile boolean returning;
+
+        CarHolder(int carId, UUID renterId) {
+            this.carId = carId;
+            this.renterId = renterId;
+        }
+    }
+
+    private static class OperationStats {
+        private final ConcurrentHistogram latencyMicros = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+    }
+
+    public class Report {
+        private final long elapsedNanos;
+
+        private Report(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getOversells() {
+            return oversells.sum();
+        }
+
+        public long getDoubleAssignments() {
+            return doubleAssignments.sum();
+        }
+
+        public List<String> lines() {
+            double seconds = elapsedNanos / 1e9;
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format("cycles=%d in %.1fs (%.1f cycles/s), reservations rejected for capacity=%d",
+                    cycles.sum(), seconds, cycles.sum() / seconds, rejected.sum()));
+            lines.add(String.format("%-10s %9s %9s %9s %9s %9s %9s %8s %8s",
+                    "operation", "count", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors", "timeouts"));
+            for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+                ConcurrentHistogram histogram = entry.getValue().latencyMicros;
+                lines.add(String.format("%-10s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %8d %8d",
+                        entry.getKey(),
+                        histogram.getTotalCount(),
+                        histogram.getTotalCount() / seconds,
+                        histogram.getValueAtPercentile(50.0) / 1000.0,
+                        histogram.getValueAtPercentile(99.0) / 1000.0,
+                        histogram.getValueAtPercentile(99.9) / 1000.0,
+                        histogram.getMaxValue() / 1000.0,
+                        entry.getValue().errors.sum(),
+                        entry.getValue().timeouts.sum()));
+            }
+            lines.add("consistency: oversold days=" + oversells.sum() + ", cars assigned twice=" + doubleAssignments.sum());
+            return lines;
+        }
+    }
+}
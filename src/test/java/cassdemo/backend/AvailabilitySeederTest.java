@@ -0,0 +1,96 @@
+package cassdemo.backend;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AvailabilitySeederTest {
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+    private static final int DAYS = 5;
+
+    private MemoryBackend backend;
+    private FleetIndex fleet;
+    private AvailabilitySeeder seeder;
+
+    @BeforeEach
+    void setUp() throws BackendException {
+        backend = MemoryBackend.withFleet("fleet.csv");
+        fleet = new FleetIndex(backend, 0, () -> { });
+        seeder = new AvailabilitySeeder(backend, fleet, new AvailabilityCache(0, 16), 4);
+    }
+
+    @Test
+    void seedsEveryClassUpToCapacity() throws BackendException {
+        assertEquals(Car.getCarClasses().size() * DAYS, seeder.seed(DAY, DAYS));
+
+        for (String carClass : Car.getCarClasses()) {
+            for (long count : backend.getAvailableCarCounts(carClass, DAY, DAY.plusDays(DAYS - 1))) {
+                assertEquals(fleet.capacity(carClass), count);
+            }
+        }
+    }
+
+    @Test
+    void seedingAgainChangesNothing() throws BackendException {
+        seeder.seed(DAY, DAYS);
+
+        assertEquals(0, seeder.seed(DAY, DAYS));
+        assertEquals(fleet.capacity("C"), backend.getAvailableCarCount(DAY, "C"));
+    }
+
+    @Test
+    void overlappingRangeSeedsOnlyTheNewDays() throws BackendException {
+        seeder.seed(DAY, DAYS);
+
+        assertEquals(Car.getCarClasses().size() * 2, seeder.seed(DAY.plusDays(DAYS - 2), 4));
+        assertEquals(fleet.capacity("B"), backend.getAvailableCarCount(DAY.plusDays(DAYS + 1), "B"));
+    }
+
+    @Test
+    void concurrentSeedersSeedEachDayOnce() throws Exception {
+        List<Future<Integer>> runs = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                runs.add(executor.submit(() -> seeder.seed(DAY, DAYS)));
+            }
+        }
+
+        int seeded = 0;
+        for (Future<Integer> run : runs) {
+            seeded += run.get();
+        }
+        assertEquals(Car.getCarClasses().size() * DAYS, seeded);
+        for (long count : backend.getAvailableCarCounts("D", DAY, DAY.plusDays(DAYS - 1))) {
+            assertEquals(fleet.capacity("D"), count);
+        }
+    }
+
+    @Test
+    void dayBookedBeforeSeedingKeepsTheBooking() throws BackendException {
+        backend.updateAvailableCount(DAY, "A", -1);
+
+        seeder.seed(DAY, DAYS);
+
+        assertEquals(fleet.capacity("A") - 1, backend.getAvailableCarCount(DAY, "A"));
+    }
+
+    @Test
+    void migratedDaysAreNotSeededAgain() throws BackendException {
+        backend.updateAvailableCount(DAY, "A", 1);
+
+        assertEquals(1, seeder.migrate(DAY, DAYS));
+        seeder.seed(DAY, DAYS);
+
+        assertEquals(1, backend.getAvailableCarCount(DAY, "A"));
+        assertEquals(fleet.capacity("A"), backend.getAvailableCarCount(DAY.plusDays(1), "A"));
+        assertEquals(0, seeder.migrate(DAY, DAYS));
+    }
+}
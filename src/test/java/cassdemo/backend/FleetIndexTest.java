@@ -0,0 +1,23 @@
+package cassdemo.backend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class FleetIndexTest {
+
+    @Test
+    void carsWithANegativeIdAreSkipped() throws BackendException {
+        MemoryBackend backend = MemoryBackend.withFleet("fleet.csv");
+        int capacity = new FleetIndex(backend, 0, () -> { }).capacity("A");
+        int carCount = backend.getAllCarDetails().size();
+        backend.addCar(new Car(-3, "Broken Row", "A", "PO 0000X"));
+
+        FleetIndex fleet = new FleetIndex(backend, 0, () -> { });
+
+        assertEquals(capacity, fleet.capacity("A"));
+        assertEquals(carCount, fleet.carCount());
+        assertNull(fleet.car(-3));
+    }
+}
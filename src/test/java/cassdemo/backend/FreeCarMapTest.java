@@ -0,0 +1,63 @@
+package cassdemo.backend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FreeCarMapTest {
+
+    @Test
+    void reloadMarksExactlyTheRentedCars() {
+        FreeCarMap map = new FreeCarMap();
+        map.reload(130, new int[]{0, 63, 64, 130});
+
+        assertTrue(map.isTaken(0));
+        assertTrue(map.isTaken(63));
+        assertTrue(map.isTaken(64));
+        assertTrue(map.isTaken(130));
+        assertFalse(map.isTaken(1));
+        assertFalse(map.isTaken(65));
+        assertFalse(map.isTaken(129));
+    }
+
+    @Test
+    void reloadReplacesThePreviousView() {
+        FreeCarMap map = new FreeCarMap();
+        map.reload(10, new int[]{3});
+        map.markTaken(4);
+
+        map.reload(10, new int[]{5});
+
+        assertFalse(map.isTaken(3));
+        assertFalse(map.isTaken(4));
+        assertTrue(map.isTaken(5));
+    }
+
+    @Test
+    void markTakenAndMarkFreeFlipOnlyTheirCar() {
+        FreeCarMap map = new FreeCarMap();
+        map.reload(100, new int[0]);
+
+        map.markTaken(70);
+        map.markTaken(71);
+        map.markFree(70);
+
+        assertFalse(map.isTaken(70));
+        assertTrue(map.isTaken(71));
+    }
+
+    @Test
+    void carsOutsideTheLoadedRangeAreIgnored() {
+        FreeCarMap map = new FreeCarMap();
+        map.reload(10, new int[]{-1, 11, 500});
+
+        map.markTaken(500);
+        map.markTaken(-3);
+
+        assertFalse(map.isTaken(-1));
+        assertFalse(map.isTaken(11));
+        assertFalse(map.isTaken(500));
+        assertFalse(map.isTaken(-3));
+    }
+}
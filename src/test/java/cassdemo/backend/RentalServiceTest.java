@@ -0,0 +1,174 @@
+package cassdemo.backend;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RentalServiceTest {
+    private static final LocalDate FROM = LocalDate.now().plusDays(1);
+    private static final LocalDate TO = FROM.plusDays(2);
+
+    private MemoryBackend backend;
+    private RentalService service;
+
+    @BeforeEach
+    void setUp() throws BackendException {
+        backend = MemoryBackend.withFleet("fleet.csv");
+        service = newService(backend);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void deleteGivesTheCountersBackOnce() throws BackendException {
+        UUID renterId = UUID.randomUUID();
+        UUID rentalId = service.reserveRental(FROM, renterId, TO, "E");
+        assertEquals(2, backend.getAvailableCarCount(TO, "E"));
+
+        service.deleteReservation(FROM, renterId, rentalId, TO, "E");
+
+        assertThrows(BackendException.class, () -> service.deleteReservation(FROM, renterId, rentalId, TO, "E"));
+        for (LocalDate date = FROM; !date.isAfter(TO); date = date.plusDays(1)) {
+            assertEquals(3, backend.getAvailableCarCount(date, "E"));
+        }
+    }
+
+    @Test
+    void concurrentDeleteGivesTheCountersBackOnce() throws BackendException {
+        RentalService[] racing = new RentalService[1];
+        MemoryBackend racingBackend = new MemoryBackend() {
+            private boolean raced;
+
+            @Override
+            public CompletionStage<Void> deleteReservationAsync(LocalDate dateFrom, UUID clientId, UUID rentalId) {
+                // a second delete of the same reservation gets in between the release and the row delete
+                if (!raced) {
+                    raced = true;
+                    try {
+                        racing[0].deleteReservation(clientId, rentalId);
+                    } catch (BackendException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return super.deleteReservationAsync(dateFrom, clientId, rentalId);
+            }
+        };
+        for (Car car : backend.getAllCarDetails()) {
+            racingBackend.addCar(car);
+        }
+        service.close();
+        backend = racingBackend;
+        service = newService(racingBackend);
+        racing[0] = service;
+        UUID renterId = UUID.randomUUID();
+        UUID rentalId = service.reserveRental(FROM, renterId, TO, "E");
+
+        service.deleteReservation(FROM, renterId, rentalId, TO, "E");
+
+        for (LocalDate date = FROM; !date.isAfter(TO); date = date.plusDays(1)) {
+            assertEquals(3, racingBackend.getAvailableCarCount(date, "E"));
+        }
+    }
+
+    @Test
+    void deleteOfAReservationWithoutSlotsGivesBackItsRange() throws BackendException {
+        UUID renterId = UUID.randomUUID();
+        UUID rentalId = UUID.randomUUID();
+        backend.insertRentalLog(FROM, renterId, rentalId, TO, "E", List.of());
+        backend.updateAvailableCountsAsync("E", FROM, TO, -1);
+
+        service.deleteReservation(FROM, renterId, rentalId, TO, "E");
+
+        for (LocalDate date = FROM; !date.isAfter(TO); date = date.plusDays(1)) {
+            assertEquals(3, backend.getAvailableCarCount(date, "E"));
+        }
+    }
+
+    @Test
+    void failedCounterUpdateKeepsTheReservation() throws BackendException {
+        MemoryBackend failing = new MemoryBackend() {
+            @Override
+            public CompletionStage<Void> updateAvailableCountsAsync(String carClass, LocalDate dateFrom, LocalDate dateTo, long delta) {
+                // seeding adds capacity, reservations take it
+                if (delta > 0) return super.updateAvailableCountsAsync(carClass, dateFrom, dateTo, delta);
+                return CompletableFuture.failedFuture(new BackendException("Write timeout"));
+            }
+        };
+        for (Car car : backend.getAllCarDetails()) {
+            failing.addCar(car);
+        }
+        service.close();
+        service = newService(failing);
+        UUID renterId = UUID.randomUUID();
+
+        UUID rentalId = service.reserveRental(FROM, renterId, TO, "E");
+
+        assertEquals(rentalId, failing.selectRentals(FROM, renterId).get(0).getRentalId());
+        assertEquals(3, failing.getAvailableCarCount(FROM, "E"));
+    }
+
+    @Test
+    void classesWithoutACounterAreNotAvailable() throws BackendException {
+        LocalDate unseeded = LocalDate.now().plusDays(20);
+        backend.updateAvailableCount(unseeded, "B", 1);
+
+        long[] counts = backend.getAvailableCarCountsForDate(unseeded);
+
+        assertArrayEquals(counts, Futures.join(backend.getAvailableCarCountsForDateAsync(unseeded)));
+        assertEquals(StorageBackend.NO_DATA, counts[CarClass.indexOf("A")]);
+        assertEquals(List.of("B"), service.getAvailableCarClasses(unseeded, true));
+        assertThrows(BackendException.class, () -> service.getAvailableCarClasses(unseeded.plusDays(1), true));
+    }
+
+    @Test
+    void renterIndexListsUpcomingReservationsInStartOrder() throws BackendException {
+        UUID renterId = UUID.randomUUID();
+        UUID later = service.reserveRental(FROM.plusDays(2), renterId, TO.plusDays(2), "C");
+        UUID sooner = service.reserveRental(FROM, renterId, TO, "D");
+        service.reserveRental(FROM, UUID.randomUUID(), TO, "D");
+        // ended yesterday, written straight to the store since reserveRental refuses past dates
+        backend.insertRentalLog(LocalDate.now().minusDays(3), renterId, UUID.randomUUID(), LocalDate.now().minusDays(1), "D", List.of());
+
+        List<RentalLog> upcoming = service.getUpcomingReservations(renterId);
+
+        assertEquals(List.of(sooner, later), upcoming.stream().map(RentalLog::getRentalId).toList());
+        assertEquals("D", upcoming.get(0).getCarClass());
+        assertEquals(TO, upcoming.get(0).getDateTo());
+    }
+
+    @Test
+    void shortDeleteFindsTheReservationThroughTheRenterIndex() throws BackendException {
+        UUID renterId = UUID.randomUUID();
+        UUID rentalId = service.reserveRental(FROM, renterId, TO, "E");
+
+        service.deleteReservation(renterId, rentalId);
+
+        assertTrue(service.getUpcomingReservations(renterId).isEmpty());
+        assertTrue(backend.selectRentals(FROM, renterId).isEmpty());
+        assertEquals(3, backend.getAvailableCarCount(TO, "E"));
+        assertThrows(BackendException.class, () -> service.deleteReservation(renterId, rentalId));
+    }
+
+    private static RentalService newService(MemoryBackend target) throws BackendException {
+        Properties config = new Properties();
+        config.setProperty("fleet_refresh_seconds", "0");
+        RentalService created = new RentalService(target, config);
+        created.initializeDatabase(8);
+        return created;
+    }
+}
@@ -0,0 +1,135 @@
+package cassdemo.backend;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReservationImporterTest {
+    private static final int SHARDS = 4;
+    private static final LocalDate FROM = LocalDate.now().plusDays(1);
+    private static final LocalDate TO = FROM.plusDays(1);
+
+    @TempDir
+    Path dir;
+
+    private MemoryBackend backend;
+    private FleetIndex fleet;
+
+    @BeforeEach
+    void setUp() throws BackendException {
+        backend = MemoryBackend.withFleet("fleet.csv");
+        fleet = new FleetIndex(backend, 0, () -> { });
+    }
+
+    @Test
+    void handsOutSlotsInFileOrderAndRejectsWhatDoesNotFit() throws Exception {
+        new AvailabilitySeeder(backend, fleet, new AvailabilityCache(0, 16), 4).seed(FROM, 2);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+
+        ReservationImporter.Report report = importRows(backend,
+                row(FROM, first, TO, "A"),
+                row(FROM, second, TO, "a"),
+                row(FROM, third, TO, "A"));
+
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(List.of(0, 0), slotsOf(FROM, first));
+        assertEquals(List.of(1, 1), slotsOf(FROM, second));
+        assertTrue(backend.selectRentals(FROM, third).isEmpty());
+        assertEquals(0, backend.getAvailableCarCount(FROM, "A"));
+        assertEquals(0, backend.getAvailableCarCount(TO, "A"));
+
+        List<String> rejects = rejects();
+        assertEquals(2, rejects.size());
+        assertTrue(rejects.get(1).startsWith(row(FROM, third, TO, "A") + ",\"Not enough cars available in class A"));
+    }
+
+    @Test
+    void rejectsInvalidRowsWithTheirReason() throws Exception {
+        UUID renterId = UUID.randomUUID();
+
+        ReservationImporter.Report report = importRows(backend,
+                "not,a row",
+                row(FROM, renterId, TO, "Z"),
+                row(TO, renterId, FROM, "B"),
+                row(FROM, renterId, FROM.plusDays(40), "B"));
+
+        assertEquals(0, report.getImported());
+        assertEquals(4, report.getRejected());
+        List<String> rejects = rejects();
+        assertTrue(rejects.get(1).endsWith("\"Expected dateFrom,renterId,dateTo,carClass\""));
+        assertTrue(rejects.get(2).contains("Invalid carClass 'Z'"));
+        assertTrue(rejects.get(3).endsWith("\"Return date must be after start date.\""));
+        assertTrue(rejects.get(4).contains("30-day window"));
+    }
+
+    @Test
+    void failedClaimIsRejectedAsSuchAndReleased() throws Exception {
+        MemoryBackend failing = new MemoryBackend() {
+            @Override
+            public CompletionStage<Boolean> claimSlotAsync(String carClass, LocalDate date, int shard, int slot, UUID rentalId) {
+                CompletionStage<Boolean> applied = super.claimSlotAsync(carClass, date, shard, slot, rentalId);
+                if (!date.equals(TO)) return applied;
+                return applied.thenCompose(a -> CompletableFuture.<Boolean>failedFuture(new BackendException("Write timeout")));
+            }
+        };
+        for (Car car : backend.getAllCarDetails()) {
+            failing.addCar(car);
+        }
+        fleet = new FleetIndex(failing, 0, () -> { });
+
+        ReservationImporter.Report report = importRows(failing, row(FROM, UUID.randomUUID(), TO, "C"));
+
+        assertEquals(0, report.getImported());
+        assertTrue(rejects().get(1).endsWith("\"Slot claim failed: Write timeout\""));
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(0, Futures.join(failing.getClaimedSlotsAsync("C", FROM, shard)).length);
+            assertEquals(0, Futures.join(failing.getClaimedSlotsAsync("C", TO, shard)).length);
+        }
+    }
+
+    private ReservationImporter.Report importRows(MemoryBackend target, String... rows) throws IOException, BackendException {
+        Path file = dir.resolve("import.csv");
+        Files.write(file, List.of(prepend("dateFrom,renterId,dateTo,carClass", rows)), StandardCharsets.UTF_8);
+        SlotReservationEngine engine = new SlotReservationEngine(target, SHARDS);
+        // chunks of two rows, so hand-out also has to see the slots taken by earlier chunks
+        return new ReservationImporter(target, engine, fleet, new AvailabilityCache(0, 16), 2, 4)
+                .importFile(file, dir.resolve("rejects.csv"));
+    }
+
+    private List<String> rejects() throws IOException {
+        return Files.readAllLines(dir.resolve("rejects.csv"), StandardCharsets.UTF_8);
+    }
+
+    private List<Integer> slotsOf(LocalDate dateFrom, UUID renterId) throws BackendException {
+        List<RentalLog> rentals = backend.selectRentals(dateFrom, renterId);
+        assertEquals(1, rentals.size());
+        return backend.getReservationSlots(dateFrom, renterId, rentals.get(0).getRentalId());
+    }
+
+    private static String row(LocalDate dateFrom, UUID renterId, LocalDate dateTo, String carClass) {
+        return dateFrom + "," + renterId + "," + dateTo + "," + carClass;
+    }
+
+    private static String[] prepend(String header, String[] rows) {
+        String[] lines = new String[rows.length + 1];
+        lines[0] = header;
+        System.arraycopy(rows, 0, lines, 1, rows.length);
+        return lines;
+    }
+}
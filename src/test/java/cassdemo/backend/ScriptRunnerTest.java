@@ -0,0 +1,113 @@
+package cassdemo.backend;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScriptRunnerTest {
+    private static final LocalDate FROM = LocalDate.now().plusDays(1);
+    private static final LocalDate TO = FROM.plusDays(1);
+
+    private RentalService service;
+    private ScriptRunner.Report report;
+
+    @BeforeEach
+    void setUp() throws BackendException {
+        Properties config = new Properties();
+        config.setProperty("fleet_refresh_seconds", "0");
+        service = new RentalService(MemoryBackend.withFleet("fleet.csv"), config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void linesOfOneRenterKeepTheirOrder() throws IOException {
+        List<String> script = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            UUID renterId = UUID.randomUUID();
+            script.add("reserve " + FROM + " " + renterId + " " + TO + " C");
+            script.add("myreservations " + renterId);
+        }
+
+        List<String> blocks = run(script, 4);
+
+        assertEquals(32, report.getLines());
+        assertEquals(0, report.getFailed());
+        for (int i = 0; i < script.size(); i++) {
+            // results come back in input order
+            assertTrue(blocks.get(i).startsWith("> " + script.get(i) + "\n"));
+        }
+        for (int i = 1; i < script.size(); i += 2) {
+            assertTrue(blocks.get(i).contains("class C"), blocks.get(i));
+        }
+    }
+
+    @Test
+    void barrierRunsAfterEverythingBeforeItAndBeforeEverythingAfter() throws IOException {
+        List<String> script = List.of(
+                "initialize --days 5",
+                "classes " + FROM + " --strict",
+                "reserve " + FROM + " " + UUID.randomUUID() + " " + TO + " E",
+                "reserve " + FROM + " " + UUID.randomUUID() + " " + TO + " E",
+                "reserve " + FROM + " " + UUID.randomUUID() + " " + TO + " E",
+                "classes " + FROM + " --strict");
+
+        List<String> blocks = run(script, 4);
+
+        assertEquals(0, report.getFailed());
+        assertTrue(blocks.get(1).contains("\nE\n"), blocks.get(1));
+        assertFalse(blocks.get(5).contains("\nE\n"), blocks.get(5));
+    }
+
+    @Test
+    void failedLineIsReportedAndTheRestStillRuns() throws IOException {
+        UUID renterId = UUID.randomUUID();
+        List<String> script = List.of(
+                "reserve " + TO + " " + renterId + " " + FROM + " A",
+                "nosuchcommand",
+                "reserve " + FROM + " " + renterId + " " + TO + " A");
+
+        List<String> blocks = run(script, 2);
+
+        assertEquals(3, report.getLines());
+        assertEquals(2, report.getFailed());
+        assertTrue(blocks.get(0).contains("# line 1 failed"));
+        assertTrue(blocks.get(1).contains("# line 2 failed"));
+        assertTrue(blocks.get(2).contains("Reservation completed."));
+    }
+
+    // the output split into one block per script line, each starting with its "> " echo
+    private List<String> run(List<String> script, int parallelism) throws IOException {
+        StringWriter output = new StringWriter();
+        report = new ScriptRunner(service, parallelism)
+                .run(new BufferedReader(new StringReader(String.join("\n", script))), new PrintWriter(output));
+        List<String> blocks = new ArrayList<>();
+        for (String line : output.toString().split("\n")) {
+            if (line.startsWith("> ")) {
+                blocks.add("");
+            }
+            if (!blocks.isEmpty()) {
+                blocks.set(blocks.size() - 1, blocks.get(blocks.size() - 1) + line + "\n");
+            }
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,133 @@
+package cassdemo.backend;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlotReservationEngineTest {
+    private static final int SHARDS = 4;
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+
+    private MemoryBackend backend;
+    private SlotReservationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        backend = new MemoryBackend();
+        engine = new SlotReservationEngine(backend, SHARDS);
+    }
+
+    @Test
+    void claimsOneDistinctSlotPerDayUpToCapacity() throws BackendException {
+        int[] first = engine.claim(UUID.randomUUID(), "A", DAY, DAY.plusDays(1), 2);
+        int[] second = engine.claim(UUID.randomUUID(), "A", DAY, DAY.plusDays(1), 2);
+
+        for (int day = 0; day < 2; day++) {
+            assertNotEquals(SlotReservationEngine.NO_SLOT, first[day]);
+            assertNotEquals(SlotReservationEngine.NO_SLOT, second[day]);
+            assertNotEquals(first[day], second[day]);
+        }
+        assertEquals(2, claimed("A", DAY));
+        assertEquals(2, claimed("A", DAY.plusDays(1)));
+    }
+
+    @Test
+    void fullDayReleasesTheSlotsOfTheOtherDays() throws BackendException {
+        engine.claim(UUID.randomUUID(), "A", DAY.plusDays(1), DAY.plusDays(1), 1);
+
+        int[] slots = engine.claim(UUID.randomUUID(), "A", DAY, DAY.plusDays(1), 1);
+
+        assertEquals(SlotReservationEngine.NO_SLOT, slots[1]);
+        assertEquals(0, claimed("A", DAY));
+        assertEquals(1, claimed("A", DAY.plusDays(1)));
+    }
+
+    @Test
+    void claimAllTurnsAFullDayIntoCapacityExceeded() throws BackendException {
+        engine.claim(UUID.randomUUID(), "A", DAY.plusDays(1), DAY.plusDays(1), 1);
+
+        CapacityExceededException e = assertThrows(CapacityExceededException.class,
+                () -> engine.claimAll(UUID.randomUUID(), "A", DAY, DAY.plusDays(1), 1));
+
+        assertTrue(e.getMessage().endsWith("for date " + DAY.plusDays(1)));
+        assertEquals(0, claimed("A", DAY));
+    }
+
+    @Test
+    void releaseMakesTheSlotsClaimableAgain() throws BackendException {
+        UUID rentalId = UUID.randomUUID();
+        int[] slots = engine.claim(rentalId, "A", DAY, DAY.plusDays(2), 1);
+
+        engine.release(rentalId, "A", DAY, slots);
+
+        assertEquals(0, claimed("A", DAY));
+        assertArrayEquals(slots, engine.claim(UUID.randomUUID(), "A", DAY, DAY.plusDays(2), 1));
+    }
+
+    @Test
+    void releaseLeavesSlotsOfOtherRentalsAlone() throws BackendException {
+        int[] slots = engine.claim(UUID.randomUUID(), "A", DAY, DAY, 1);
+
+        engine.release(UUID.randomUUID(), "A", DAY, slots);
+
+        assertEquals(1, claimed("A", DAY));
+    }
+
+    @Test
+    void dropFreesEverySlotOfTheDay() throws BackendException {
+        engine.claim(UUID.randomUUID(), "A", DAY, DAY.plusDays(1), 8);
+        engine.claim(UUID.randomUUID(), "A", DAY, DAY.plusDays(1), 8);
+
+        Futures.join(engine.dropAsync("A", DAY));
+
+        assertEquals(0, claimed("A", DAY));
+        assertEquals(2, claimed("A", DAY.plusDays(1)));
+    }
+
+    @Test
+    void claimThatAppliedBeforeFailingIsReleased() throws BackendException {
+        MemoryBackend timingOut = new MemoryBackend() {
+            @Override
+            public CompletionStage<Boolean> claimSlotAsync(String carClass, LocalDate date, int shard, int slot, UUID rentalId) {
+                CompletionStage<Boolean> applied = super.claimSlotAsync(carClass, date, shard, slot, rentalId);
+                if (!date.equals(DAY.plusDays(1))) return applied;
+                return applied.thenCompose(a -> CompletableFuture.<Boolean>failedFuture(new BackendException("Write timeout")));
+            }
+        };
+        backend = timingOut;
+        engine = new SlotReservationEngine(timingOut, SHARDS);
+
+        assertThrows(BackendException.class, () -> engine.claim(UUID.randomUUID(), "A", DAY, DAY.plusDays(2), 3));
+
+        for (int day = 0; day < 3; day++) {
+            assertEquals(0, claimed("A", DAY.plusDays(day)));
+        }
+    }
+
+    @Test
+    void freeSlotsSkipClaimedOnesInAscendingOrder() throws BackendException {
+        UUID rentalId = UUID.randomUUID();
+        Futures.join(engine.claimSlotAsync(rentalId, "A", DAY, 1));
+        Futures.join(engine.claimSlotAsync(rentalId, "A", DAY, 4));
+
+        assertArrayEquals(new int[]{0, 2, 3, 5}, Futures.join(engine.freeSlotsAsync("A", DAY, 6)));
+    }
+
+    private int claimed(String carClass, LocalDate date) throws BackendException {
+        int count = 0;
+        for (int shard = 0; shard < SHARDS; shard++) {
+            count += Futures.join(backend.getClaimedSlotsAsync(carClass, date, shard)).length;
+        }
+        return count;
+    }
+}